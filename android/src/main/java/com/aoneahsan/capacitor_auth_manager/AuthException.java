@@ -0,0 +1,23 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+// An error with one of the AuthErrorCode values, passed through to the rejected plugin call
+final class AuthException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    static final String PROVIDER_UNAVAILABLE = "auth/provider-unavailable";
+    // Rejected by an open circuit without calling the provider; PROVIDER_UNAVAILABLE means the call was attempted
+    static final String CIRCUIT_OPEN = "auth/circuit-open";
+    static final String TIMEOUT = "auth/timeout";
+    static final String TOO_MANY_REQUESTS = "auth/too-many-requests";
+
+    private final String code;
+
+    AuthException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    String getCode() {
+        return code;
+    }
+}
@@ -2,8 +2,16 @@ package com.aoneahsan.capacitor_auth_manager;
 
 import android.util.Log;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
 public class AuthLogger {
     private static final String PREFIX = "CapacitorAuthManager";
+    private static final int ASYNC_BUFFER_CAPACITY = 1024;
+    private static final int ASYNC_DRAIN_BATCH = 64;
+    private static final long ASYNC_DETACH_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    // DiagnosticLogFile flushes at most once a second, so an idle consumer with a file only wakes that often
+    private static final long ASYNC_FLUSH_WAKE_NANOS = TimeUnit.SECONDS.toNanos(1);
     
     public enum LogLevel {
         DEBUG(0, "D"),
@@ -28,9 +36,24 @@ public class AuthLogger {
         }
     }
     
+    // Builds a message only when its level is enabled; non-capturing lambdas allocate nothing per call
+    public interface MessageSupplier {
+        String get();
+    }
+    
     private boolean isEnabled = false;
     private LogLevel logLevel = LogLevel.INFO;
+    // Lowest enabled level value, or MAX_VALUE when logging is off, so the disabled check is one compare
+    private volatile int minEnabledLevel = Integer.MAX_VALUE;
     private final String tag;
+    // Non-null while async mode is on; callers only enqueue and the consumer thread formats and emits
+    private volatile LogRingBuffer asyncBuffer;
+    private boolean asyncRequested = false;
+    // Appended to only from the consumer thread, so file I/O never runs on the caller
+    private volatile DiagnosticLogFile logFile;
+    // Set by flush() and cleared by the consumer thread once it has written the file's buffered lines
+    private volatile boolean flushRequested;
+    private final LogRingBuffer.Consumer emitter = this::emit;
     
     public AuthLogger(String tag) {
         this.tag = tag != null ? tag : PREFIX;
@@ -38,6 +61,108 @@ public class AuthLogger {
     
     public void setEnabled(boolean enabled) {
         this.isEnabled = enabled;
+        updateMinEnabledLevel();
+    }
+    
+    private void updateMinEnabledLevel() {
+        minEnabledLevel = isEnabled ? logLevel.getValue() : Integer.MAX_VALUE;
+    }
+    
+    public synchronized void setAsync(boolean async) {
+        asyncRequested = async;
+        updateAsyncBuffer();
+    }
+    
+    // A log file keeps the consumer thread running even when async logcat output was not requested
+    synchronized void setLogFile(DiagnosticLogFile file) {
+        DiagnosticLogFile previous = logFile;
+        logFile = file;
+        updateAsyncBuffer();
+        if (previous != null && previous != file) {
+            previous.close();
+        }
+    }
+    
+    DiagnosticLogFile getLogFile() {
+        return logFile;
+    }
+    
+    // Hands the write to the consumer thread and returns at once, so it is safe to call from the main thread
+    public void flush() {
+        LogRingBuffer buffer = asyncBuffer;
+        if (logFile == null || buffer == null) {
+            return;
+        }
+        flushRequested = true;
+        buffer.wake();
+    }
+    
+    private void updateAsyncBuffer() {
+        boolean async = asyncRequested || logFile != null;
+        if (async == (asyncBuffer != null)) {
+            return;
+        }
+        if (!async) {
+            // The consumer drains what is left and exits once it sees the buffer detached
+            LogRingBuffer detached = asyncBuffer;
+            asyncBuffer = null;
+            detached.close();
+            return;
+        }
+        LogRingBuffer buffer = new LogRingBuffer(ASYNC_BUFFER_CAPACITY);
+        asyncBuffer = buffer;
+        Thread consumer = new Thread(() -> consume(buffer), "CapAuthLogger");
+        consumer.setDaemon(true);
+        consumer.setPriority(Thread.MIN_PRIORITY);
+        consumer.start();
+    }
+    
+    public boolean isAsync() {
+        return asyncBuffer != null;
+    }
+    
+    // Records rejected because the async buffer was full
+    public long getDroppedCount() {
+        LogRingBuffer buffer = asyncBuffer;
+        return buffer != null ? buffer.getDroppedCount() : 0;
+    }
+    
+    public long getQueuedCount() {
+        LogRingBuffer buffer = asyncBuffer;
+        return buffer != null ? buffer.getPublishedCount() : 0;
+    }
+    
+    private void consume(LogRingBuffer buffer) {
+        while (true) {
+            if (buffer.drain(emitter, ASYNC_DRAIN_BATCH) > 0) {
+                continue;
+            }
+            DiagnosticLogFile file = logFile;
+            if (file != null) {
+                if (flushRequested) {
+                    flushRequested = false;
+                    file.flushQuietly();
+                } else {
+                    file.flushIfDue(System.currentTimeMillis());
+                }
+            }
+            if (asyncBuffer != buffer) {
+                // One last pass for producers that read the buffer just before it was detached
+                LockSupport.parkNanos(ASYNC_DETACH_GRACE_NANOS);
+                buffer.drain(emitter, Integer.MAX_VALUE);
+                file = logFile;
+                if (file != null) {
+                    file.flushQuietly();
+                }
+                return;
+            }
+            // Parked until a producer publishes a record; without a file there is nothing to do on a timer
+            buffer.awaitRecords(file != null ? ASYNC_FLUSH_WAKE_NANOS : 0);
+        }
+    }
+    
+    public boolean isLoggable(LogLevel level) {
+        return level.getValue() >= minEnabledLevel;
     }
     
     public void setLogLevel(String level) {
@@ -59,42 +184,175 @@ public class AuthLogger {
             default:
                 this.logLevel = LogLevel.INFO;
         }
+        updateMinEnabledLevel();
+    }
+    
+    // Fixed-arity overloads keep disabled calls free of varargs arrays and primitive boxing
+    public void debug(String message) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message);
+        }
+    }
+    
+    public void debug(String message, Object arg) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, arg);
+        }
+    }
+    
+    public void debug(String message, long arg) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, arg);
+        }
+    }
+    
+    public void debug(String message, Object arg1, Object arg2) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, arg1, arg2);
+        }
+    }
+    
+    public void debug(String message, Object arg1, long arg2) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, arg1, arg2);
+        }
     }
     
     public void debug(String message, Object... args) {
-        log(LogLevel.DEBUG, message, args);
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, args);
+        }
+    }
+    
+    public void debug(MessageSupplier message) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message.get());
+        }
+    }
+    
+    public void info(String message) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message);
+        }
+    }
+    
+    public void info(String message, Object arg) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, arg);
+        }
+    }
+    
+    public void info(String message, long arg) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, arg);
+        }
+    }
+    
+    public void info(String message, Object arg1, Object arg2) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, arg1, arg2);
+        }
+    }
+    
+    public void info(String message, Object arg1, long arg2) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, arg1, arg2);
+        }
     }
     
     public void info(String message, Object... args) {
-        log(LogLevel.INFO, message, args);
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, args);
+        }
+    }
+    
+    public void info(MessageSupplier message) {
+        if (isLoggable(LogLevel.INFO)) {
+            log(LogLevel.INFO, message.get());
+        }
+    }
+    
+    public void warn(String message) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message);
+        }
+    }
+    
+    public void warn(String message, Object arg) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, arg);
+        }
+    }
+    
+    public void warn(String message, long arg) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, arg);
+        }
+    }
+    
+    public void warn(String message, Object arg1, Object arg2) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, arg1, arg2);
+        }
+    }
+    
+    public void warn(String message, Object arg1, long arg2) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, arg1, arg2);
+        }
     }
     
     public void warn(String message, Object... args) {
-        log(LogLevel.WARN, message, args);
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, args);
+        }
+    }
+    
+    public void warn(MessageSupplier message) {
+        if (isLoggable(LogLevel.WARN)) {
+            log(LogLevel.WARN, message.get());
+        }
     }
     
     public void error(String message, Throwable throwable) {
-        if (!isEnabled || LogLevel.ERROR.getValue() < logLevel.getValue()) {
+        if (!isLoggable(LogLevel.ERROR)) {
             return;
         }
         
-        if (throwable != null) {
-            Log.e(tag, formatMessage(message), throwable);
+        LogRingBuffer buffer = asyncBuffer;
+        if (buffer != null) {
+            buffer.offer(System.currentTimeMillis(), LogLevel.ERROR, message, null, throwable);
         } else {
-            Log.e(tag, formatMessage(message));
+            emit(System.currentTimeMillis(), LogLevel.ERROR, message, null, throwable);
         }
     }
     
     private void log(LogLevel level, String message, Object... args) {
-        if (!isEnabled || level.getValue() < logLevel.getValue()) {
-            return;
+        LogRingBuffer buffer = asyncBuffer;
+        if (buffer != null) {
+            // Arguments are formatted later on the consumer thread, so they should not be mutated after the call
+            buffer.offer(System.currentTimeMillis(), level, message, args, null);
+        } else {
+            emit(System.currentTimeMillis(), level, message, args, null);
         }
-        
+    }
+    
+    private void emit(long timestamp, LogLevel level, String message, Object[] args, Throwable throwable) {
         String formattedMessage = formatMessage(message);
-        if (args.length > 0) {
+        if (args != null && args.length > 0) {
             formattedMessage = String.format(formattedMessage, args);
         }
         
+        DiagnosticLogFile file = logFile;
+        if (file != null) {
+            file.append(timestamp, level, formattedMessage, throwable);
+        }
+        
+        if (throwable != null) {
+            Log.e(tag, formattedMessage, throwable);
+            return;
+        }
+        
         switch (level) {
             case DEBUG:
                 Log.d(tag, formattedMessage);
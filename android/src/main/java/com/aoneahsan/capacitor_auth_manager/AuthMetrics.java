@@ -0,0 +1,138 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Call counts and latency histograms per provider and operation; recording only touches atomics, never a lock
+final class AuthMetrics {
+    // Upper bounds of the latency buckets in ms; one more bucket counts everything slower than the last bound
+    private static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    // Replaced on reset so recording never has to coordinate with a snapshot
+    private volatile ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> providers = new ConcurrentHashMap<>();
+
+    void record(String provider, String operation, long latencyMs, boolean success) {
+        histogramFor(provider, operation).record(latencyMs, success);
+    }
+
+    // Wraps a provider callback so the time until it is called is recorded under the operation
+    <T> CapacitorAuthManager.AuthCallback<T> timed(String provider, String operation, CapacitorAuthManager.AuthCallback<T> callback) {
+        long startedAt = System.nanoTime();
+        return result -> {
+            record(provider, operation, (System.nanoTime() - startedAt) / 1000000, result.isSuccess());
+            callback.onResult(result);
+        };
+    }
+
+    // { <provider>: { <operation>: { count, errors, meanMs, maxMs, p50Ms, p90Ms, p99Ms, buckets: [{ leMs, count }] } } }
+    JSObject snapshot(boolean reset) {
+        Map<String, ConcurrentHashMap<String, Histogram>> current = providers;
+        if (reset) {
+            providers = new ConcurrentHashMap<>();
+        }
+        JSObject snapshot = new JSObject();
+        for (Map.Entry<String, ConcurrentHashMap<String, Histogram>> provider : current.entrySet()) {
+            JSObject operations = new JSObject();
+            for (Map.Entry<String, Histogram> operation : provider.getValue().entrySet()) {
+                operations.put(operation.getKey(), operation.getValue().toJSObject());
+            }
+            snapshot.put(provider.getKey(), operations);
+        }
+        return snapshot;
+    }
+
+    private Histogram histogramFor(String provider, String operation) {
+        ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> current = providers;
+        ConcurrentHashMap<String, Histogram> operations = current.get(provider);
+        if (operations == null) {
+            ConcurrentHashMap<String, Histogram> created = new ConcurrentHashMap<>();
+            operations = current.putIfAbsent(provider, created);
+            if (operations == null) {
+                operations = created;
+            }
+        }
+        Histogram histogram = operations.get(operation);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = operations.putIfAbsent(operation, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private static final class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong totalMs = new AtomicLong();
+        final AtomicLong maxMs = new AtomicLong();
+
+        void record(long latencyMs, boolean success) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && latencyMs > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            if (!success) {
+                errors.incrementAndGet();
+            }
+            totalMs.addAndGet(latencyMs);
+            long max;
+            do {
+                max = maxMs.get();
+            } while (latencyMs > max && !maxMs.compareAndSet(max, latencyMs));
+        }
+
+        JSObject toJSObject() {
+            // Read once so the percentiles and the bucket list agree with each other
+            long[] counts = new long[buckets.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long max = maxMs.get();
+
+            JSObject result = new JSObject();
+            result.put("count", total);
+            result.put("errors", errors.get());
+            result.put("meanMs", total > 0 ? totalMs.get() / (double) total : 0);
+            result.put("maxMs", max);
+            result.put("p50Ms", percentile(counts, total, 0.50, max));
+            result.put("p90Ms", percentile(counts, total, 0.90, max));
+            result.put("p99Ms", percentile(counts, total, 0.99, max));
+            JSArray bucketList = new JSArray();
+            for (int i = 0; i < counts.length; i++) {
+                JSObject bucket = new JSObject();
+                // The overflow bucket has no upper bound
+                bucket.put("leMs", i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : -1);
+                bucket.put("count", counts[i]);
+                bucketList.put(bucket);
+            }
+            result.put("buckets", bucketList);
+            return result;
+        }
+
+        // Upper bound of the bucket holding the quantile, capped at the slowest call seen
+        private static long percentile(long[] counts, long total, double quantile, long max) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MS[i], max);
+                }
+            }
+            return max;
+        }
+    }
+}
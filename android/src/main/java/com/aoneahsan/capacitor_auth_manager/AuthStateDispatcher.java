@@ -0,0 +1,189 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Delivers auth state off the publishing thread; each listener only ever sees the latest state, in order
+final class AuthStateDispatcher {
+    private static final int DISPATCH_THREADS = 2;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private final ConcurrentHashMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    // Numbers every publish, so a state looked up before a publish can never be delivered after it
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    AuthStateDispatcher() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "CapAuthStateDispatch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Auth state changes are rare, so the threads are not kept around between them
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    void subscribe(String id, CapacitorAuthManager.AuthStateListener listener) {
+        subscriptions.put(id, new Subscription(listener));
+    }
+
+    void unsubscribe(String id) {
+        Subscription subscription = subscriptions.remove(id);
+        if (subscription != null) {
+            subscription.pending.set(null);
+        }
+    }
+
+    void unsubscribeAll() {
+        for (String id : subscriptions.keySet()) {
+            unsubscribe(id);
+        }
+    }
+
+    void publish(JSObject user) {
+        long published = sequence.incrementAndGet();
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.offer(user, published);
+        }
+    }
+
+    // Read before looking up a state for publishTo
+    long currentSequence() {
+        return sequence.get();
+    }
+
+    // Used for the initial state of a new listener so it goes through the same ordering and duplicate checks; the
+    // state counts as of observedAt, so a sign-in published while it was looked up is never overwritten by it
+    void publishTo(String id, JSObject user, long observedAt) {
+        Subscription subscription = subscriptions.get(id);
+        if (subscription != null) {
+            subscription.offer(user, observedAt);
+        }
+    }
+
+    // Listeners with a state waiting to be delivered; each mailbox holds at most one
+    int getQueueDepth() {
+        int depth = 0;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.pending.get() != null) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    // States replaced by a newer one before their listener saw them
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    // States dropped because the listener had already been told about the same user or a newer state
+    long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    // Same user means the same uid, or no user at all; users without a uid compare by content
+    private static String identityOf(JSObject user) {
+        if (user == null) {
+            return null;
+        }
+        String uid = user.optString("uid", null);
+        return uid != null ? "uid:" + uid : "json:" + user;
+    }
+
+    private static final class Pending {
+        // Null when signed out
+        final JSObject user;
+        final long sequence;
+
+        Pending(JSObject user, long sequence) {
+            this.user = user;
+            this.sequence = sequence;
+        }
+    }
+
+    private final class Subscription {
+        final CapacitorAuthManager.AuthStateListener listener;
+        final AtomicReference<Pending> pending = new AtomicReference<>();
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+        // Only touched by the drain task, which never runs twice at once for a subscription
+        boolean delivered = false;
+        String lastIdentity;
+        long lastSequence;
+
+        Subscription(CapacitorAuthManager.AuthStateListener listener) {
+            this.listener = listener;
+        }
+
+        void offer(JSObject user, long stateSequence) {
+            publishedCount.incrementAndGet();
+            Pending offered = new Pending(user, stateSequence);
+            Pending current;
+            do {
+                current = pending.get();
+                if (current != null && current.sequence > stateSequence) {
+                    // A newer state is already waiting
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+            } while (!pending.compareAndSet(current, offered));
+            if (current != null) {
+                coalescedCount.incrementAndGet();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            while (true) {
+                Pending next = pending.getAndSet(null);
+                if (next == null) {
+                    scheduled.set(false);
+                    // A publish between the empty read and the reset above would otherwise be stranded
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                String identity = identityOf(next.user);
+                if (delivered && (next.sequence < lastSequence || Objects.equals(identity, lastIdentity))) {
+                    suppressedCount.incrementAndGet();
+                    continue;
+                }
+                delivered = true;
+                lastIdentity = identity;
+                lastSequence = next.sequence;
+                deliveredCount.incrementAndGet();
+                try {
+                    listener.onAuthStateChange(next.user);
+                } catch (RuntimeException e) {
+                    // One failing listener must not stop delivery to the others
+                }
+            }
+        }
+    }
+}
@@ -1,25 +1,79 @@
 package com.aoneahsan.capacitor_auth_manager;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKey;
+import android.os.SystemClock;
 
 import com.getcapacitor.JSObject;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AuthStorage {
     private static final String PREFS_NAME = "cap_auth_prefs";
     private static final String KEY_PREFIX = "cap_auth_";
+    // Deliberately outside KEY_PREFIX so they can never collide with a stored key
+    private static final String INDEX_KEY = "cap_auth:index";
+    private static final String SHARDS_KEY = "cap_auth:shards";
+    private static final String EXPIRY_KEY = "cap_auth:expiry";
+    private static final String CUSTOM_PARAMS_KEY = "custom_params";
+    private static final String SIGNED_IN_PROVIDERS_KEY = "signed_in_providers";
+    private static final int CACHE_MAX_ENTRIES = 64;
+    private static final long WRITE_BATCH_WINDOW_MS = 50;
+    // Sweeps run no more often than this, so keys expiring close together are deleted in one pass
+    private static final long SWEEP_MIN_DELAY_MS = 1000;
+    private static final long SWEEP_RETRY_DELAY_MS = 60 * 1000;
+    private static final int SWEEP_BATCH_SIZE = 32;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
     
-    private final Context context;
-    private SharedPreferences sharedPreferences;
-    private String persistence = "local";
+    private final StorageBackend.Factory backendFactory;
+    // Single worker for initialization and batched writes, so queued writes always run after init
+    private final ScheduledExecutorService executor;
+    private final Shard defaultShard;
+    private final Map<String, Shard> providerShards = new ConcurrentHashMap<>();
+    private volatile boolean shardByProvider = false;
+    private volatile long initDurationMs = -1;
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+    // Serializes read-modify-write updates of the signed-in provider list
+    private final Object signedInProvidersLock = new Object();
+    // Expiry the next sweep is scheduled for, or MAX_VALUE when none is; only keys with a TTL schedule one. Guarded
+    // by lock
+    private long sweepAt = Long.MAX_VALUE;
+    private ScheduledFuture<?> sweepTask;
+    // Mutations not yet handed to an Editor, keyed like the cache
+    private final Map<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private int batchDepth = 0;
+    // Decrypted values keyed by unprefixed key; a null value caches a known-missing key
+    private final Map<String, String> cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_MAX_ENTRIES;
+        }
+    };
+    // Decoded custom parameters by provider; getCustomParameters hands out copies
+    private final Map<String, JSObject> customParametersCache = new ConcurrentHashMap<>();
+    // Heap-only values used while persistence is SESSION, keyed like the cache and guarded by lock
+    private final Map<String, SessionEntry> sessionValues = new LinkedHashMap<>();
+    private volatile String persistence = "local";
+    private final AtomicLong expiredEntries = new AtomicLong();
+    private final AtomicLong sweptEntries = new AtomicLong();
     
     public enum Persistence {
         LOCAL("local"),
@@ -37,63 +91,682 @@ public class AuthStorage {
         }
     }
     
+    // One backend file plus the index of keys it holds; provider is null for the shared file
+    private class Shard {
+        final String provider;
+        final FutureTask<StorageBackend> backend;
+        // Unprefixed keys present on disk, guarded by writeLock once the backend is open
+        final Set<String> ownedKeys = new HashSet<>();
+        // Expiry times (epoch ms) of committed keys written with a TTL; written under writeLock
+        final Map<String, Long> expiries = new ConcurrentHashMap<>();
+        // Written under writeLock
+        volatile boolean migrated;
+        
+        Shard(String provider) {
+            this.provider = provider;
+            this.backend = provider == null
+                    ? new FutureTask<>(AuthStorage.this::initializeStorage)
+                    : new FutureTask<>(() -> openProviderShard(this));
+            this.migrated = provider == null;
+        }
+    }
+    
+    private static class PendingWrite {
+        final Shard shard;
+        // Null marks a removal
+        final String value;
+        // Epoch ms, or 0 when the value never expires
+        final long expiresAt;
+        
+        PendingWrite(Shard shard, String value, long expiresAt) {
+            this.shard = shard;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    private static class SessionEntry {
+        final String provider;
+        final String key;
+        final String value;
+        final long expiresAt;
+        
+        SessionEntry(String provider, String key, String value, long expiresAt) {
+            this.provider = provider;
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
     public AuthStorage(Context context) {
-        this.context = context;
-        initializeStorage();
+        this(new PreferencesStorageBackend.Factory(context));
+    }
+    
+    public AuthStorage(StorageBackend.Factory backendFactory) {
+        this.backendFactory = backendFactory;
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "CapAuthStorage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The thread exits when there is no write or sweep to run, so an idle store keeps nothing awake
+        pool.setKeepAliveTime(THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut(true);
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+        this.defaultShard = new Shard(null);
+        // Keystore key generation and keyset loading are slow, so keep them off the caller's thread
+        executor.execute(defaultShard.backend);
     }
     
-    private void initializeStorage() {
+    private StorageBackend initializeStorage() {
+        long startedAt = SystemClock.elapsedRealtime();
         try {
-            // Use encrypted shared preferences for secure storage
-            MasterKey masterKey = new MasterKey.Builder(context)
-                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
-                    .build();
-            
-            sharedPreferences = EncryptedSharedPreferences.create(
-                    context,
-                    PREFS_NAME,
-                    masterKey,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
-            );
-        } catch (GeneralSecurityException | IOException e) {
-            // Fallback to regular shared preferences
-            sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            StorageBackend backend = backendFactory.open(PREFS_NAME);
+            loadKeyIndex(defaultShard, backend);
+            return backend;
+        } finally {
+            initDurationMs = SystemClock.elapsedRealtime() - startedAt;
         }
     }
     
+    private StorageBackend openProviderShard(Shard shard) {
+        // The backend's key material is created by the shared file's initialization
+        backend(defaultShard);
+        StorageBackend backend = backendFactory.open(PREFS_NAME + "_" + shard.provider);
+        loadKeyIndex(shard, backend);
+        return backend;
+    }
+    
+    // Runs before backend() can return, so callers always see a fully loaded index
+    private void loadKeyIndex(Shard shard, StorageBackend backend) {
+        long earliestExpiry = Long.MAX_VALUE;
+        for (String entry : backend.getStringSet(EXPIRY_KEY, new HashSet<>())) {
+            int separator = entry.indexOf(':');
+            try {
+                long expiresAt = Long.parseLong(entry.substring(0, separator));
+                shard.expiries.put(entry.substring(separator + 1), expiresAt);
+                earliestExpiry = Math.min(earliestExpiry, expiresAt);
+            } catch (RuntimeException e) {
+                // Skip malformed entries; the key simply never expires
+            }
+        }
+        if (earliestExpiry != Long.MAX_VALUE) {
+            scheduleSweep(earliestExpiry);
+        }
+        Set<String> index = backend.getStringSet(INDEX_KEY, null);
+        if (index != null) {
+            shard.ownedKeys.addAll(index);
+            return;
+        }
+        // Stores written before the index existed need one full scan to build it
+        for (String key : backend.getKeys()) {
+            if (key.startsWith(KEY_PREFIX)) {
+                shard.ownedKeys.add(key.substring(KEY_PREFIX.length()));
+            }
+        }
+        backend.edit().putStringSet(INDEX_KEY, new HashSet<>(shard.ownedKeys)).apply();
+    }
+    
+    // Blocks until the shard has been opened; must not be called while holding lock
+    private StorageBackend backend(Shard shard) {
+        try {
+            // Opens the shard on this thread unless another thread has already started it
+            shard.backend.run();
+            StorageBackend backend = shard.backend.get();
+            if (!shard.migrated) {
+                synchronized (writeLock) {
+                    migrateFromDefaultShard(shard, backend);
+                }
+            }
+            return backend;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for auth storage", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to initialize auth storage", e.getCause());
+        }
+    }
+    
+    // Moves a provider's keys out of the shared file the first time its shard is used
+    private void migrateFromDefaultShard(Shard shard, StorageBackend backend) {
+        if (shard.migrated) {
+            return;
+        }
+        StorageBackend defaultBackend = backend(defaultShard);
+        String providerPrefix = shard.provider + "_";
+        StorageBackend.Editor shardEditor = backend.edit();
+        StorageBackend.Editor defaultEditor = defaultBackend.edit();
+        Iterator<String> iterator = defaultShard.ownedKeys.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (!key.startsWith(providerPrefix)) {
+                continue;
+            }
+            String value = defaultBackend.getString(KEY_PREFIX + key, null);
+            if (value != null) {
+                shardEditor.putString(KEY_PREFIX + key, value);
+                shard.ownedKeys.add(key);
+            }
+            Long expiresAt = defaultShard.expiries.remove(key);
+            if (expiresAt != null && value != null) {
+                shard.expiries.put(key, expiresAt);
+            }
+            defaultEditor.remove(KEY_PREFIX + key);
+            iterator.remove();
+        }
+        shardEditor.putStringSet(INDEX_KEY, new HashSet<>(shard.ownedKeys));
+        shardEditor.putStringSet(EXPIRY_KEY, encodeExpiries(shard));
+        // Commit the copy before dropping the originals so a crash cannot lose data
+        shardEditor.commit();
+        Set<String> knownShards = new HashSet<>(defaultBackend.getStringSet(SHARDS_KEY, new HashSet<>()));
+        knownShards.add(shard.provider);
+        defaultEditor.putStringSet(SHARDS_KEY, knownShards);
+        defaultEditor.putStringSet(INDEX_KEY, new HashSet<>(defaultShard.ownedKeys));
+        defaultEditor.putStringSet(EXPIRY_KEY, encodeExpiries(defaultShard));
+        defaultEditor.apply();
+        shard.migrated = true;
+    }
+    
+    private static Set<String> encodeExpiries(Shard shard) {
+        Set<String> encoded = new HashSet<>();
+        for (Map.Entry<String, Long> entry : shard.expiries.entrySet()) {
+            encoded.add(entry.getValue() + ":" + entry.getKey());
+        }
+        return encoded;
+    }
+    
+    private Shard shardFor(String provider) {
+        if (provider == null || !shardByProvider) {
+            return defaultShard;
+        }
+        return providerShards.computeIfAbsent(provider, Shard::new);
+    }
+    
+    public boolean isReady() {
+        return defaultShard.backend.isDone();
+    }
+    
+    // Time spent creating the encrypted store, or -1 while it is still initializing
+    public long getInitDurationMs() {
+        return initDurationMs;
+    }
+    
     public void setPersistence(String persistence) {
-        this.persistence = persistence;
+        setPersistence(persistence, false);
+    }
+    
+    // When spillSession is set, values held in memory for SESSION are written to the encrypted store on upgrade to LOCAL
+    public void setPersistence(String persistence, boolean spillSession) {
+        List<SessionEntry> spilled = new ArrayList<>();
+        synchronized (lock) {
+            boolean wasSession = isSession();
+            this.persistence = persistence;
+            if (wasSession && !isSession()) {
+                if (spillSession && Persistence.LOCAL.getValue().equals(persistence)) {
+                    spilled.addAll(sessionValues.values());
+                }
+                sessionValues.clear();
+            }
+        }
+        customParametersCache.clear();
+        if (Persistence.NONE.getValue().equals(persistence)) {
+            clearCache();
+        }
+        if (!spilled.isEmpty()) {
+            runInBatch(() -> {
+                for (SessionEntry entry : spilled) {
+                    enqueueWrite(shardFor(entry.provider), cacheKey(entry.provider, entry.key), entry.value, entry.expiresAt);
+                }
+            });
+        }
+    }
+    
+    private boolean isSession() {
+        return Persistence.SESSION.getValue().equals(persistence);
+    }
+    
+    // Stores each provider's keys in its own encrypted file, opened on first use
+    public void setShardByProvider(boolean enabled) {
+        this.shardByProvider = enabled;
     }
     
     public String get(String key) {
+        return read(null, key);
+    }
+    
+    public void set(String key, String value) {
+        write(null, key, value, 0);
+    }
+    
+    // The value reads as missing once ttlMs has elapsed and is deleted by the next sweep
+    public void set(String key, String value, long ttlMs) {
+        write(null, key, value, expiryFor(ttlMs));
+    }
+    
+    public void remove(String key) {
+        delete(null, key);
+    }
+    
+    public String getForProvider(String provider, String key) {
+        return read(provider, key);
+    }
+    
+    public void setForProvider(String provider, String key, String value) {
+        write(provider, key, value, 0);
+    }
+    
+    public void setForProvider(String provider, String key, String value, long ttlMs) {
+        write(provider, key, value, expiryFor(ttlMs));
+    }
+    
+    public void removeForProvider(String provider, String key) {
+        delete(provider, key);
+    }
+    
+    private static long expiryFor(long ttlMs) {
+        return ttlMs > 0 ? System.currentTimeMillis() + ttlMs : 0;
+    }
+    
+    private static boolean isExpired(long expiresAt, long now) {
+        return expiresAt != 0 && expiresAt <= now;
+    }
+    
+    private String read(String provider, String key) {
         if (persistence.equals(Persistence.NONE.getValue())) {
             return null;
         }
-        return sharedPreferences.getString(KEY_PREFIX + key, null);
+        Shard shard = shardFor(provider);
+        String cacheKey = cacheKey(provider, key);
+        synchronized (lock) {
+            if (isSession()) {
+                SessionEntry entry = sessionValues.get(cacheKey);
+                if (entry != null && isExpired(entry.expiresAt, System.currentTimeMillis())) {
+                    sessionValues.remove(cacheKey);
+                    expiredEntries.incrementAndGet();
+                    return null;
+                }
+                return entry != null ? entry.value : null;
+            }
+            PendingWrite pending = pendingWrites.get(cacheKey);
+            if (pending != null) {
+                return unlessExpired(shard, cacheKey, pending.value, pending.expiresAt);
+            }
+            if (cache.containsKey(cacheKey)) {
+                return unlessExpired(shard, cacheKey, cache.get(cacheKey), committedExpiry(shard, cacheKey));
+            }
+        }
+        StorageBackend backend = backend(shard);
+        synchronized (lock) {
+            PendingWrite pending = pendingWrites.get(cacheKey);
+            if (pending != null) {
+                return unlessExpired(shard, cacheKey, pending.value, pending.expiresAt);
+            }
+            if (!cache.containsKey(cacheKey)) {
+                cache.put(cacheKey, backend.getString(KEY_PREFIX + cacheKey, null));
+            }
+            return unlessExpired(shard, cacheKey, cache.get(cacheKey), committedExpiry(shard, cacheKey));
+        }
     }
     
-    public void set(String key, String value) {
+    private static long committedExpiry(Shard shard, String cacheKey) {
+        Long expiresAt = shard.expiries.get(cacheKey);
+        return expiresAt != null ? expiresAt : 0;
+    }
+    
+    // Called with lock held; hides an expired value and queues its deletion
+    private String unlessExpired(Shard shard, String cacheKey, String value, long expiresAt) {
+        if (value == null || !isExpired(expiresAt, System.currentTimeMillis())) {
+            return value;
+        }
+        expiredEntries.incrementAndGet();
+        enqueueWrite(shard, cacheKey, null, 0);
+        return null;
+    }
+    
+    private void write(String provider, String key, String value, long expiresAt) {
         if (persistence.equals(Persistence.NONE.getValue())) {
             return;
         }
-        sharedPreferences.edit().putString(KEY_PREFIX + key, value).apply();
+        invalidateCustomParameters(provider, key);
+        synchronized (lock) {
+            if (isSession()) {
+                sessionValues.put(cacheKey(provider, key), new SessionEntry(provider, key, value, expiresAt));
+                scheduleSweep(expiresAt);
+                return;
+            }
+        }
+        enqueueWrite(shardFor(provider), cacheKey(provider, key), value, expiresAt);
     }
     
-    public void remove(String key) {
-        sharedPreferences.edit().remove(KEY_PREFIX + key).apply();
+    private void delete(String provider, String key) {
+        invalidateCustomParameters(provider, key);
+        synchronized (lock) {
+            if (isSession()) {
+                sessionValues.remove(cacheKey(provider, key));
+                return;
+            }
+        }
+        enqueueWrite(shardFor(provider), cacheKey(provider, key), null, 0);
+    }
+    
+    // Provider keys keep their historical "<provider>_<key>" name in every layout
+    private static String cacheKey(String provider, String key) {
+        return provider == null ? key : provider + "_" + key;
     }
     
     public void clear() {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        for (String key : sharedPreferences.getAll().keySet()) {
-            if (key.startsWith(KEY_PREFIX)) {
-                editor.remove(key);
+        customParametersCache.clear();
+        synchronized (lock) {
+            sessionValues.clear();
+            pendingWrites.clear();
+            cache.clear();
+        }
+        synchronized (writeLock) {
+            StorageBackend defaultBackend = backend(defaultShard);
+            for (String provider : defaultBackend.getStringSet(SHARDS_KEY, new HashSet<>())) {
+                Shard shard = providerShards.computeIfAbsent(provider, Shard::new);
+                clearShard(shard, backend(shard));
             }
+            clearShard(defaultShard, defaultBackend);
         }
+    }
+    
+    private void clearShard(Shard shard, StorageBackend backend) {
+        StorageBackend.Editor editor = backend.edit();
+        for (String key : shard.ownedKeys) {
+            editor.remove(KEY_PREFIX + key);
+        }
+        shard.ownedKeys.clear();
+        shard.expiries.clear();
+        editor.putStringSet(INDEX_KEY, new HashSet<>());
+        editor.putStringSet(EXPIRY_KEY, new HashSet<>());
         editor.apply();
     }
     
+    // Removes every key stored for the given provider without touching other providers' data
+    public void clearProvider(String provider) {
+        String providerPrefix = provider + "_";
+        customParametersCache.remove(provider);
+        synchronized (lock) {
+            sessionValues.keySet().removeIf(key -> key.startsWith(providerPrefix));
+            pendingWrites.keySet().removeIf(key -> key.startsWith(providerPrefix));
+            cache.keySet().removeIf(key -> key.startsWith(providerPrefix));
+        }
+        synchronized (writeLock) {
+            Shard shard = shardFor(provider);
+            StorageBackend backend = backend(shard);
+            StorageBackend.Editor editor = backend.edit();
+            boolean removed = false;
+            Iterator<String> iterator = shard.ownedKeys.iterator();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                if (key.startsWith(providerPrefix)) {
+                    editor.remove(KEY_PREFIX + key);
+                    iterator.remove();
+                    removed = true;
+                }
+            }
+            if (removed) {
+                shard.expiries.keySet().removeIf(key -> key.startsWith(providerPrefix));
+                editor.putStringSet(INDEX_KEY, new HashSet<>(shard.ownedKeys));
+                editor.putStringSet(EXPIRY_KEY, encodeExpiries(shard));
+                editor.apply();
+            }
+        }
+    }
+    
+    // Schedules a sweep for expiresAt unless one is already due by then; a no-op for keys without a TTL
+    private void scheduleSweep(long expiresAt) {
+        if (expiresAt == 0) {
+            return;
+        }
+        synchronized (lock) {
+            if (expiresAt >= sweepAt) {
+                return;
+            }
+            if (sweepTask != null) {
+                sweepTask.cancel(false);
+            }
+            sweepAt = expiresAt;
+            long delayMs = Math.max(SWEEP_MIN_DELAY_MS, expiresAt - System.currentTimeMillis());
+            sweepTask = executor.schedule(this::sweepExpired, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Deletes up to SWEEP_BATCH_SIZE expired entries per pass, then schedules the next pass for the earliest expiry left
+    private void sweepExpired() {
+        long nextExpiry = Long.MAX_VALUE;
+        try {
+            long now = System.currentTimeMillis();
+            int swept = 0;
+            synchronized (lock) {
+                sweepAt = Long.MAX_VALUE;
+                sweepTask = null;
+                Iterator<SessionEntry> iterator = sessionValues.values().iterator();
+                while (iterator.hasNext() && swept < SWEEP_BATCH_SIZE) {
+                    if (isExpired(iterator.next().expiresAt, now)) {
+                        iterator.remove();
+                        swept++;
+                    }
+                }
+            }
+            List<Shard> shards = new ArrayList<>();
+            shards.add(defaultShard);
+            shards.addAll(providerShards.values());
+            beginBatch();
+            try {
+                for (Shard shard : shards) {
+                    // Never open a shard just to sweep it
+                    if (!shard.backend.isDone()) {
+                        continue;
+                    }
+                    for (Map.Entry<String, Long> entry : shard.expiries.entrySet()) {
+                        if (swept >= SWEEP_BATCH_SIZE) {
+                            break;
+                        }
+                        if (isExpired(entry.getValue(), now) && deleteIfStillExpired(shard, entry.getKey(), now)) {
+                            swept++;
+                        }
+                    }
+                }
+            } finally {
+                endBatch();
+            }
+            sweptEntries.addAndGet(swept);
+            if (swept >= SWEEP_BATCH_SIZE) {
+                executor.execute(this::sweepExpired);
+                return;
+            }
+            nextExpiry = earliestExpiry();
+        } catch (RuntimeException e) {
+            // Retried later rather than dropping the expiries still tracked
+            nextExpiry = System.currentTimeMillis() + SWEEP_RETRY_DELAY_MS;
+        }
+        if (nextExpiry != Long.MAX_VALUE) {
+            scheduleSweep(nextExpiry);
+        }
+    }
+
+    // Includes entries already expired but not yet deleted, so a later pass still removes them
+    private long earliestExpiry() {
+        long earliest = Long.MAX_VALUE;
+        synchronized (lock) {
+            for (SessionEntry entry : sessionValues.values()) {
+                if (entry.expiresAt != 0) {
+                    earliest = Math.min(earliest, entry.expiresAt);
+                }
+            }
+            for (PendingWrite pending : pendingWrites.values()) {
+                if (pending.value != null && pending.expiresAt != 0) {
+                    earliest = Math.min(earliest, pending.expiresAt);
+                }
+            }
+        }
+        List<Shard> shards = new ArrayList<>();
+        shards.add(defaultShard);
+        shards.addAll(providerShards.values());
+        for (Shard shard : shards) {
+            for (Long expiresAt : shard.expiries.values()) {
+                earliest = Math.min(earliest, expiresAt);
+            }
+        }
+        return earliest;
+    }
+    
+    private boolean deleteIfStillExpired(Shard shard, String cacheKey, long now) {
+        synchronized (lock) {
+            PendingWrite pending = pendingWrites.get(cacheKey);
+            if (pending != null && (pending.value == null || !isExpired(pending.expiresAt, now))) {
+                return false;
+            }
+            enqueueWrite(shard, cacheKey, null, 0);
+            return true;
+        }
+    }
+    
+    public long getExpiredCount() {
+        return expiredEntries.get();
+    }
+    
+    public long getSweptCount() {
+        return sweptEntries.get();
+    }
+    
+    // Drops every decrypted value held in memory; the next get() reads through to storage again
+    public void clearCache() {
+        synchronized (lock) {
+            cache.clear();
+        }
+    }
+    
+    // Holds back writes until the matching endBatch() so they are committed as one Editor
+    public void beginBatch() {
+        synchronized (lock) {
+            batchDepth++;
+        }
+    }
+    
+    public void endBatch() {
+        synchronized (lock) {
+            if (batchDepth == 0) {
+                return;
+            }
+            batchDepth--;
+            if (batchDepth == 0 && !pendingWrites.isEmpty()) {
+                scheduleFlush(0);
+            }
+        }
+    }
+    
+    public void runInBatch(Runnable writes) {
+        beginBatch();
+        try {
+            writes.run();
+        } finally {
+            endBatch();
+        }
+    }
+    
+    // Synchronously commits every pending write; call at shutdown and other crash-safety points
+    public boolean flush() {
+        return commitPendingWrites(true);
+    }
+    
+    // Starts committing pending writes on the storage thread and returns at once, so the main thread never blocks on
+    // disk or on a Keystore init still running there
+    public Future<Boolean> flushAsync() {
+        return executor.submit(() -> commitPendingWrites(true));
+    }
+    
+    // Like flushAsync but waits at most timeoutMs; false if not committed in time, though the commit still happens
+    public boolean flush(long timeoutMs) {
+        try {
+            return flushAsync().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void enqueueWrite(Shard shard, String cacheKey, String value, long expiresAt) {
+        synchronized (lock) {
+            pendingWrites.put(cacheKey, new PendingWrite(shard, value, expiresAt));
+            cache.put(cacheKey, value);
+            if (value != null) {
+                scheduleSweep(expiresAt);
+            }
+            if (batchDepth == 0 && !flushScheduled) {
+                scheduleFlush(WRITE_BATCH_WINDOW_MS);
+            }
+        }
+    }
+    
+    private void scheduleFlush(long delayMs) {
+        flushScheduled = true;
+        executor.schedule(() -> commitPendingWrites(false), delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private boolean commitPendingWrites(boolean synchronous) {
+        // Serializes commits with clear() so a drained batch cannot land after a clear
+        synchronized (writeLock) {
+            Map<String, PendingWrite> writes;
+            synchronized (lock) {
+                flushScheduled = false;
+                if (pendingWrites.isEmpty() || (!synchronous && batchDepth > 0)) {
+                    return true;
+                }
+                writes = new LinkedHashMap<>(pendingWrites);
+                pendingWrites.clear();
+            }
+            // One Editor per shard, so each file is rewritten once per batch
+            Map<Shard, List<Map.Entry<String, PendingWrite>>> byShard = new LinkedHashMap<>();
+            for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+                byShard.computeIfAbsent(entry.getValue().shard, shard -> new ArrayList<>()).add(entry);
+            }
+            boolean committed = true;
+            for (Map.Entry<Shard, List<Map.Entry<String, PendingWrite>>> shardWrites : byShard.entrySet()) {
+                Shard shard = shardWrites.getKey();
+                StorageBackend.Editor editor = backend(shard).edit();
+                boolean indexChanged = false;
+                boolean expiriesChanged = false;
+                for (Map.Entry<String, PendingWrite> entry : shardWrites.getValue()) {
+                    String key = entry.getKey();
+                    String value = entry.getValue().value;
+                    long expiresAt = entry.getValue().expiresAt;
+                    if (value != null) {
+                        editor.putString(KEY_PREFIX + key, value);
+                        indexChanged |= shard.ownedKeys.add(key);
+                    } else {
+                        editor.remove(KEY_PREFIX + key);
+                        indexChanged |= shard.ownedKeys.remove(key);
+                    }
+                    if (value != null && expiresAt != 0) {
+                        Long previous = shard.expiries.put(key, expiresAt);
+                        expiriesChanged |= previous == null || previous != expiresAt;
+                    } else {
+                        expiriesChanged |= shard.expiries.remove(key) != null;
+                    }
+                }
+                if (indexChanged) {
+                    editor.putStringSet(INDEX_KEY, new HashSet<>(shard.ownedKeys));
+                }
+                if (expiriesChanged) {
+                    editor.putStringSet(EXPIRY_KEY, encodeExpiries(shard));
+                }
+                if (synchronous) {
+                    committed &= editor.commit();
+                } else {
+                    editor.apply();
+                }
+            }
+            return committed;
+        }
+    }
+    
     public void setLastAuthProvider(String provider) {
         set("last_auth_provider", provider);
     }
@@ -106,19 +779,96 @@ public class AuthStorage {
         remove("last_auth_provider");
     }
     
+    // Providers whose session outlives the process, so sign-out and user lookups reach them before their first use
+    public Set<String> getSignedInProviders() {
+        Set<String> providers = new LinkedHashSet<>();
+        String stored = get(SIGNED_IN_PROVIDERS_KEY);
+        if (stored != null) {
+            for (String provider : stored.split(",")) {
+                if (!provider.isEmpty()) {
+                    providers.add(provider);
+                }
+            }
+        }
+        return providers;
+    }
+    
+    public void addSignedInProvider(String provider) {
+        synchronized (signedInProvidersLock) {
+            Set<String> providers = getSignedInProviders();
+            if (providers.add(provider)) {
+                setSignedInProviders(providers);
+            }
+        }
+    }
+    
+    public void removeSignedInProvider(String provider) {
+        synchronized (signedInProvidersLock) {
+            Set<String> providers = getSignedInProviders();
+            if (providers.remove(provider)) {
+                setSignedInProviders(providers);
+            }
+        }
+    }
+    
+    public void removeSignedInProviders() {
+        synchronized (signedInProvidersLock) {
+            remove(SIGNED_IN_PROVIDERS_KEY);
+        }
+    }
+    
+    private void setSignedInProviders(Set<String> providers) {
+        if (providers.isEmpty()) {
+            remove(SIGNED_IN_PROVIDERS_KEY);
+            return;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String provider : providers) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(provider);
+        }
+        set(SIGNED_IN_PROVIDERS_KEY, joined.toString());
+    }
+    
     public void setCustomParameters(String provider, JSObject parameters) {
-        set(provider + "_custom_params", parameters.toString());
+        String encoded = CustomParametersCodec.encode(parameters);
+        setForProvider(provider, CUSTOM_PARAMS_KEY, encoded);
+        if (!persistence.equals(Persistence.NONE.getValue())) {
+            JSObject decoded = CustomParametersCodec.decode(encoded);
+            if (decoded != null) {
+                customParametersCache.put(provider, decoded);
+            }
+        }
     }
     
+    // Served from memory after the first read; callers get their own copy so the cached map cannot be changed
     public JSObject getCustomParameters(String provider) {
-        String jsonString = get(provider + "_custom_params");
-        if (jsonString != null) {
-            try {
-                return JSObject.fromJSONObject(new JSONObject(jsonString));
-            } catch (JSONException e) {
-                return null;
-            }
+        JSObject cached = customParametersCache.get(provider);
+        if (cached != null) {
+            return CustomParametersCodec.copy(cached);
+        }
+        String stored = getForProvider(provider, CUSTOM_PARAMS_KEY);
+        if (stored == null) {
+            return null;
+        }
+        JSObject parameters = CustomParametersCodec.decode(stored);
+        if (parameters == null) {
+            return null;
+        }
+        String encoded = CustomParametersCodec.encode(parameters);
+        if (!encoded.equals(stored)) {
+            // Rewrite values stored by earlier versions in a larger form
+            setForProvider(provider, CUSTOM_PARAMS_KEY, encoded);
+        }
+        customParametersCache.put(provider, parameters);
+        return CustomParametersCodec.copy(parameters);
+    }
+    
+    private void invalidateCustomParameters(String provider, String key) {
+        if (provider != null && CUSTOM_PARAMS_KEY.equals(key)) {
+            customParametersCache.remove(provider);
         }
-        return null;
     }
 }
\ No newline at end of file
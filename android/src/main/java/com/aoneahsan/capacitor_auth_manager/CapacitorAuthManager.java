@@ -6,34 +6,188 @@ import android.util.Log;
 
 import com.getcapacitor.JSObject;
 
-import java.util.HashMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CapacitorAuthManager {
     private static final String TAG = "CapacitorAuthManager";
+    private static final String DIAGNOSTIC_LOG_DIRECTORY = "cap_auth_logs";
+    private static final long DIAGNOSTIC_LOG_MAX_FILE_BYTES = 256 * 1024;
+    private static final long DEFAULT_TOKEN_REFRESH_BUFFER_MS = 5 * 60 * 1000;
+    private static final long CURRENT_USER_LOOKUP_TIMEOUT_MS = 5 * 1000;
+    private static final long SIGN_OUT_PROVIDER_TIMEOUT_MS = 10 * 1000;
+    private static final long DEFAULT_STARTUP_TIMEOUT_MS = 10 * 1000;
 
     private final Context context;
     private final Activity activity;
-    private final Map<String, BaseAuthProvider> providers;
+    private final ProviderRegistry providerRegistry;
     private final AuthStorage storage;
     private final AuthLogger logger;
-    private final Map<String, AuthStateListener> authStateListeners;
-    private String currentProvider;
-    private boolean isInitialized;
+    // Listeners are called on the dispatcher's threads, never on the thread that completed sign-in
+    private final AuthStateDispatcher authStateDispatcher;
+    // Provider SDK callbacks arrive on arbitrary threads; reads are lock-free and transitions swap a new snapshot
+    private final AtomicReference<State> state = new AtomicReference<>(State.INITIAL);
+    // Serializes current-provider transitions with their storage write so the two never disagree
+    private final Object currentProviderLock = new Object();
+    // Memory copy of the persisted signed-in providers, so lane checks on the bridge thread never read storage;
+    // null until initialize loads it. Written under signedInProvidersLock
+    private volatile Set<String> signedInProviders;
+    private final Object signedInProvidersLock = new Object();
+    // Concurrent refreshes for the same provider share one provider round-trip
+    private final SingleFlight<JSObject> refreshFlights = new SingleFlight<>();
+    private final SingleFlight<JSObject> idTokenFlights = new SingleFlight<>();
+    private final IdTokenCache idTokenCache = new IdTokenCache();
+    private final TokenRefreshScheduler refreshScheduler;
+    private volatile boolean autoRefreshToken = true;
+    // Callers of an initialize still waiting for its required providers; null when none is in flight. Guarded by this
+    private List<AuthCallback<Void>> pendingInitialize;
+    private final ProviderFanOut fanOut;
+    // A degraded provider fails fast instead of holding every caller for its full SDK timeout
+    private final ProviderCircuitBreakers circuitBreakers;
+    private final AuthMetrics metrics = new AuthMetrics();
 
     public CapacitorAuthManager(Context context, Activity activity) {
+        this(context, activity, new PreferencesStorageBackend.Factory(context));
+    }
+
+    public CapacitorAuthManager(Context context, Activity activity, StorageBackend.Factory storageBackendFactory) {
         this.context = context;
         this.activity = activity;
-        this.providers = new HashMap<>();
-        this.storage = new AuthStorage(context);
+        ScheduledExecutorService scheduler = SharedScheduler.create();
+        this.providerRegistry = new ProviderRegistry(scheduler);
+        this.storage = new AuthStorage(storageBackendFactory);
         this.logger = new AuthLogger(TAG);
-        this.authStateListeners = new HashMap<>();
-        this.isInitialized = false;
+        this.authStateDispatcher = new AuthStateDispatcher();
+        this.refreshScheduler = new TokenRefreshScheduler(this::refreshIdTokenInBackground, DEFAULT_TOKEN_REFRESH_BUFFER_MS, scheduler);
+        this.fanOut = new ProviderFanOut(scheduler);
+        this.circuitBreakers = new ProviderCircuitBreakers(scheduler);
+    }
+
+    private boolean isInitialized() {
+        return state.get().initialized;
+    }
+
+    private void setInitialized(boolean initialized) {
+        State current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, current.withInitialized(initialized)));
+    }
+
+    private String currentProvider() {
+        return state.get().currentProvider;
+    }
+
+    private void setCurrentProvider(String provider) {
+        synchronized (currentProviderLock) {
+            State current;
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, current.withCurrentProvider(provider)));
+            storage.setLastAuthProvider(provider);
+        }
+    }
+
+    // A session persisted by an earlier process keeps its provider current; the provider is created on first use
+    private void restoreCurrentProvider() {
+        String lastProvider = storage.getLastAuthProvider();
+        if (lastProvider == null || !providerRegistry.isConfigured(lastProvider)) {
+            return;
+        }
+        synchronized (currentProviderLock) {
+            State current;
+            do {
+                current = state.get();
+                if (current.currentProvider != null) {
+                    return;
+                }
+            } while (!state.compareAndSet(current, current.withCurrentProvider(lastProvider)));
+        }
+    }
+
+    // Created providers plus configured ones with a session persisted by an earlier process; no other provider
+    // can hold a session
+    private Set<String> sessionProviders() {
+        Set<String> providers = new LinkedHashSet<>(providerRegistry.readyProviders().keySet());
+        for (String provider : signedInProviders()) {
+            if (providerRegistry.isConfigured(provider)) {
+                providers.add(provider);
+            }
+        }
+        return providers;
+    }
+
+    private Set<String> signedInProviders() {
+        Set<String> providers = signedInProviders;
+        if (providers != null) {
+            return providers;
+        }
+        synchronized (signedInProvidersLock) {
+            if (signedInProviders == null) {
+                signedInProviders = Collections.unmodifiableSet(storage.getSignedInProviders());
+            }
+            return signedInProviders;
+        }
+    }
+
+    private void setSignedIn(String provider, boolean signedIn) {
+        synchronized (signedInProvidersLock) {
+            Set<String> providers = new LinkedHashSet<>(signedInProviders());
+            if (signedIn ? providers.add(provider) : providers.remove(provider)) {
+                signedInProviders = Collections.unmodifiableSet(providers);
+                if (signedIn) {
+                    storage.addSignedInProvider(provider);
+                } else {
+                    storage.removeSignedInProvider(provider);
+                }
+            }
+        }
+    }
+
+    private void clearSignedIn() {
+        synchronized (signedInProvidersLock) {
+            signedInProviders = Collections.emptySet();
+            storage.removeSignedInProviders();
+        }
+    }
+
+    // Clears the current provider only if it is still the expected one, or unconditionally when expected is null
+    private boolean clearCurrentProvider(String expected) {
+        synchronized (currentProviderLock) {
+            State current;
+            do {
+                current = state.get();
+                if (current.currentProvider == null || (expected != null && !expected.equals(current.currentProvider))) {
+                    return false;
+                }
+            } while (!state.compareAndSet(current, current.withCurrentProvider(null)));
+            storage.removeLastAuthProvider();
+            return true;
+        }
     }
 
-    public void initialize(JSObject options, AuthCallback<Void> callback) {
-        if (isInitialized) {
+    public synchronized void initialize(JSObject options, AuthCallback<Void> callback) {
+        if (pendingInitialize != null) {
+            // The first call may still fail, so later ones get its outcome rather than an early success
+            pendingInitialize.add(callback);
+            return;
+        }
+        if (isInitialized()) {
             logger.warn("Auth manager already initialized");
             callback.onResult(AuthResult.success(null));
             return;
@@ -47,139 +201,243 @@ public class CapacitorAuthManager {
             if (options.has("logLevel")) {
                 logger.setLogLevel(options.getString("logLevel"));
             }
+            if (options.has("asyncLogging")) {
+                logger.setAsync(options.getBoolean("asyncLogging"));
+            }
+            if (options.has("diagnosticLog")) {
+                setDiagnosticLogEnabled(options.getBoolean("diagnosticLog"));
+            }
 
             // Configure persistence
             if (options.has("persistence")) {
                 storage.setPersistence(options.getString("persistence"));
             }
+            if (options.has("shardStorageByProvider")) {
+                storage.setShardByProvider(options.getBoolean("shardStorageByProvider"));
+            }
+            if (options.has("autoRefreshToken")) {
+                autoRefreshToken = options.getBoolean("autoRefreshToken");
+            }
+            if (options.has("tokenRefreshBuffer")) {
+                long tokenRefreshBuffer = options.getLong("tokenRefreshBuffer");
+                idTokenCache.setSkewMs(tokenRefreshBuffer);
+                refreshScheduler.setLeadMs(tokenRefreshBuffer);
+            }
+            if (storage.isReady()) {
+                logger.debug("Auth storage initialized in %d ms", storage.getInitDurationMs());
+            } else {
+                logger.debug("Auth storage still initializing in background");
+            }
+
+            long startupTimeout = options.has("startupTimeout") ? options.getLong("startupTimeout") : DEFAULT_STARTUP_TIMEOUT_MS;
+            providerRegistry.setStartupTimeoutMs(startupTimeout);
+
+            // Lazy providers are only registered here and created on first use or by warmUp; required and optional
+            // ones start in parallel right away, but initialization only waits for the required ones
+            List<String> requiredProviders = new ArrayList<>();
+            List<String> optionalProviders = new ArrayList<>();
+            JSONArray providerConfigs = options.optJSONArray("providers");
+            if (providerConfigs != null) {
+                for (int i = 0; i < providerConfigs.length(); i++) {
+                    JSONObject config = providerConfigs.optJSONObject(i);
+                    if (config == null || !config.has("provider")) {
+                        continue;
+                    }
+                    String provider = config.optString("provider");
+                    JSONObject providerOptions = config.optJSONObject("options");
+                    providerRegistry.configure(provider, providerOptions != null ? JSObject.fromJSONObject(providerOptions) : null);
+                    if (!providerRegistry.hasFactory(provider)) {
+                        logger.warn("Provider %s is not available on Android", provider);
+                    }
+                    String startup = config.optString("startup", "lazy");
+                    if ("required".equals(startup)) {
+                        requiredProviders.add(provider);
+                    } else if ("optional".equals(startup)) {
+                        optionalProviders.add(provider);
+                    }
+                }
+            }
 
-            // Initialize providers
-            // TODO: Initialize providers based on configuration
+            restoreCurrentProvider();
+            signedInProviders();
 
-            isInitialized = true;
-            logger.info("Auth manager initialized successfully");
-            callback.onResult(AuthResult.success(null));
+            // Marked initialized before startup so calls made meanwhile join the startups instead of failing
+            setInitialized(true);
+            if (!optionalProviders.isEmpty()) {
+                providerRegistry.warmUp(optionalProviders, startupTimeout, result -> logStartup(result.getData(), false));
+            }
+            if (requiredProviders.isEmpty()) {
+                logger.info("Auth manager initialized successfully");
+                callback.onResult(AuthResult.success(null));
+                return;
+            }
+            List<AuthCallback<Void>> waiting = new ArrayList<>();
+            waiting.add(callback);
+            pendingInitialize = waiting;
+            providerRegistry.warmUp(requiredProviders, startupTimeout, result -> {
+                List<String> failed = logStartup(result.getData(), true);
+                AuthResult<Void> outcome;
+                if (!failed.isEmpty()) {
+                    Exception error = new Exception("Required providers failed to initialize: " + failed);
+                    logger.error("Failed to initialize auth manager", error);
+                    outcome = AuthResult.error(error);
+                } else {
+                    logger.info("Auth manager initialized successfully");
+                    outcome = AuthResult.success(null);
+                }
+                synchronized (this) {
+                    if (!failed.isEmpty()) {
+                        // Left uninitialized so the app can fix the configuration and call initialize again
+                        setInitialized(false);
+                    }
+                    pendingInitialize = null;
+                }
+                for (AuthCallback<Void> waiter : waiting) {
+                    waiter.onResult(outcome);
+                }
+            });
         } catch (Exception e) {
+            pendingInitialize = null;
             logger.error("Failed to initialize auth manager", e);
             callback.onResult(AuthResult.error(e));
         }
     }
 
     public void signIn(String provider, JSObject credentials, JSObject options, AuthCallback<JSObject> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
-            return;
-        }
-
-        authProvider.signIn(credentials, options, result -> {
+        // Interactive and user-paced, so sign-in bypasses the circuit: token calls that tripped it must not lock the user
+        // out, and a cancelled or slow sign-in says nothing about the provider's health
+        withProvider(provider, callback, authProvider -> authProvider.signIn(credentials, options, metrics.timed(provider, "signIn", result -> {
             if (result.isSuccess()) {
-                currentProvider = provider;
-                storage.setLastAuthProvider(provider);
+                idTokenCache.invalidate(provider);
+                setCurrentProvider(provider);
+                setSignedIn(provider, true);
                 notifyAuthStateChange(result.getData());
             }
             callback.onResult(result);
-        });
+        })));
     }
 
-    public void signOut(JSObject options, AuthCallback<Void> callback) {
-        if (!isInitialized) {
+    public void signOut(JSObject options, AuthCallback<JSObject> callback) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider;
+        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider();
         
         if (provider != null) {
-            BaseAuthProvider authProvider = providers.get(provider);
-            if (authProvider != null) {
-                authProvider.signOut(options, result -> {
-                    if (result.isSuccess()) {
-                        if (provider.equals(currentProvider)) {
-                            currentProvider = null;
-                            storage.removeLastAuthProvider();
-                        }
-                        notifyAuthStateChange(null);
-                    }
-                    callback.onResult(result);
-                });
-            } else {
-                callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not found")));
-            }
+            withProvider(provider, callback, authProvider -> authProvider.signOut(options, metrics.timed(provider, "signOut", forgetIdTokenUntil(provider, result -> {
+                if (result.isSuccess()) {
+                    clearCurrentProvider(provider);
+                    setSignedIn(provider, false);
+                    notifyAuthStateChange(null);
+                    callback.onResult(AuthResult.success(null));
+                } else {
+                    callback.onResult(AuthResult.error(result.getError()));
+                }
+            }))));
         } else {
-            // Sign out from all providers
-            for (BaseAuthProvider authProvider : providers.values()) {
-                authProvider.signOut(options, result -> {});
-            }
-            currentProvider = null;
-            storage.removeLastAuthProvider();
+            // Sign out from all providers; local state is cleared first so a slow revocation never keeps the app signed in
+            Set<String> targets = sessionProviders();
+            idTokenCache.suspendAll();
+            refreshScheduler.clear();
+            clearCurrentProvider(null);
+            clearSignedIn();
             notifyAuthStateChange(null);
-            callback.onResult(AuthResult.success(null));
+            fanOut.<Void>all(targets, (name, done) -> withProvider(name, done, authProvider -> authProvider.signOut(options, metrics.timed(name, "signOut", done))), SIGN_OUT_PROVIDER_TIMEOUT_MS, results -> {
+                idTokenCache.resumeAll();
+                refreshScheduler.clear();
+                JSObject outcomes = new JSObject();
+                for (Map.Entry<String, AuthResult<Void>> entry : results.entrySet()) {
+                    JSObject outcome = new JSObject();
+                    outcome.put("success", entry.getValue().isSuccess());
+                    if (!entry.getValue().isSuccess()) {
+                        logger.warn("Sign out failed for %s", entry.getKey());
+                        outcome.put("error", entry.getValue().getError().getMessage());
+                    }
+                    outcomes.put(entry.getKey(), outcome);
+                }
+                JSObject data = new JSObject();
+                data.put("providers", outcomes);
+                callback.onResult(AuthResult.success(data));
+            });
         }
     }
 
     public void getCurrentUser(AuthCallback<JSObject> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        if (currentProvider != null) {
-            BaseAuthProvider provider = providers.get(currentProvider);
-            if (provider != null) {
-                provider.getCurrentUser(callback);
-                return;
-            }
+        String current = currentProvider();
+        if (current != null && providerRegistry.isConfigured(current)) {
+            withProvider(current, callback, provider -> provider.getCurrentUser(metrics.timed(current, "getCurrentUser", callback)));
+            return;
         }
 
-        // Try to get user from any provider
-        for (BaseAuthProvider provider : providers.values()) {
-            provider.getCurrentUser(result -> {
-                if (result.isSuccess() && result.getData() != null) {
-                    callback.onResult(result);
-                    return;
-                }
-            });
-        }
+        // Ask every provider that may hold a session at once; the first signed-in user wins
+        fanOut.firstNonNull(sessionProviders(), (name, done) -> withProvider(name, done, provider -> provider.getCurrentUser(metrics.timed(name, "getCurrentUser", done))), CURRENT_USER_LOOKUP_TIMEOUT_MS, callback);
+    }
 
-        callback.onResult(AuthResult.success(null));
+    // True when getCurrentUser only talks to providers that are already created, so it cannot wait on a startup.
+    // Reads memory only, as it runs on the bridge thread; false while the signed-in providers are not loaded yet
+    boolean isCurrentUserLookupReady() {
+        if (!isInitialized()) {
+            return true;
+        }
+        String current = currentProvider();
+        if (current != null && providerRegistry.isConfigured(current)) {
+            return providerRegistry.isReady(current);
+        }
+        Set<String> persisted = signedInProviders;
+        if (persisted == null) {
+            return false;
+        }
+        for (String provider : persisted) {
+            if (providerRegistry.isConfigured(provider) && !providerRegistry.isReady(provider)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void refreshToken(JSObject options, AuthCallback<JSObject> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider;
+        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider();
         
         if (provider == null) {
             callback.onResult(AuthResult.error(new Exception("No provider specified")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
-            return;
-        }
-
-        authProvider.refreshToken(options, callback);
+        withProvider(provider, callback, authProvider -> refreshFlights.execute(provider, callback, done -> circuitBreakers.<JSObject>execute(provider, result -> {
+            if (result.isSuccess()) {
+                // The provider may have rotated the ID token along with the access token
+                idTokenCache.invalidate(provider);
+            }
+            done.onResult(result);
+        }, guarded -> authProvider.refreshToken(options, metrics.timed(provider, "refreshToken", guarded)))));
     }
 
     public String addAuthStateListener(AuthStateListener listener) {
         String callbackId = UUID.randomUUID().toString();
-        authStateListeners.put(callbackId, listener);
+        authStateDispatcher.subscribe(callbackId, listener);
         
         // Emit current state
+        long observedAt = authStateDispatcher.currentSequence();
         getCurrentUser(result -> {
             if (result.isSuccess()) {
-                listener.onAuthStateChange(result.getData());
+                authStateDispatcher.publishTo(callbackId, result.getData(), observedAt);
             }
         });
         
@@ -187,25 +445,29 @@ public class CapacitorAuthManager {
     }
 
     public void removeAuthStateListener(String callbackId) {
-        authStateListeners.remove(callbackId);
+        authStateDispatcher.unsubscribe(callbackId);
     }
 
     public void removeAllListeners() {
-        authStateListeners.clear();
+        authStateDispatcher.unsubscribeAll();
     }
 
     public void isSupported(String provider, AuthCallback<JSObject> callback) {
         JSObject result = new JSObject();
-        result.put("isSupported", providers.containsKey(provider));
+        boolean configured = providerRegistry.isConfigured(provider);
+        boolean available = providerRegistry.hasFactory(provider);
+        result.put("isSupported", configured && available);
         
-        if (!providers.containsKey(provider)) {
+        if (!configured) {
             result.put("reason", "Provider not configured");
+        } else if (!available) {
+            result.put("reason", "Provider not available on Android");
         }
         
         // Add available providers
         JSObject availableProviders = new JSObject();
-        for (String key : providers.keySet()) {
-            availableProviders.put(key, true);
+        for (String key : providerRegistry.configuredProviders()) {
+            availableProviders.put(key, providerRegistry.hasFactory(key));
         }
         result.put("availableProviders", availableProviders);
         
@@ -213,43 +475,34 @@ public class CapacitorAuthManager {
     }
 
     public void configure(String provider, JSObject options, AuthCallback<Void> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        // TODO: Create and configure provider
+        // The provider is recreated with the new options on its next use
+        providerRegistry.configure(provider, options);
+        circuitBreakers.reset(provider);
+        forgetIdToken(provider);
         callback.onResult(AuthResult.success(null));
     }
 
     public void linkAccount(String provider, JSObject credentials, JSObject options, AuthCallback<JSObject> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
-            return;
-        }
-
-        authProvider.linkAccount(credentials, options, callback);
+        withProvider(provider, callback, authProvider -> authProvider.linkAccount(credentials, options, metrics.timed(provider, "linkAccount", callback)));
     }
 
     public void unlinkAccount(String provider, AuthCallback<Void> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
-            return;
-        }
-
-        authProvider.unlinkAccount(callback);
+        withProvider(provider, callback, authProvider -> authProvider.unlinkAccount(metrics.timed(provider, "unlinkAccount", forgetIdTokenUntil(provider, callback))));
     }
 
     public void sendPasswordResetEmail(String email, JSObject actionCodeSettings, AuthCallback<Void> callback) {
@@ -285,26 +538,88 @@ public class CapacitorAuthManager {
     }
 
     public void getIdToken(JSObject options, AuthCallback<JSObject> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider;
+        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider();
         
         if (provider == null) {
             callback.onResult(AuthResult.error(new Exception("No provider specified")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
-            return;
+        boolean forceRefresh = options != null && options.has("forceRefresh") ? options.getBoolean("forceRefresh") : false;
+        withProvider(provider, callback, authProvider -> requestIdToken(provider, authProvider, forceRefresh, callback));
+    }
+
+    // True when getIdToken would answer from the token cache without creating the provider or calling it
+    boolean canServeIdTokenFromCache(JSObject options) {
+        if (!isInitialized()) {
+            return true;
         }
+        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider();
+        boolean forceRefresh = options != null && options.optBoolean("forceRefresh", false);
+        if (provider == null) {
+            return true;
+        }
+        return !forceRefresh && providerRegistry.isReady(provider) && idTokenCache.get(provider) != null;
+    }
 
-        boolean forceRefresh = options != null && options.has("forceRefresh") ? options.getBoolean("forceRefresh") : false;
-        authProvider.getIdToken(forceRefresh, callback);
+    private void requestIdToken(String provider, BaseAuthProvider authProvider, boolean forceRefresh, AuthCallback<JSObject> callback) {
+        if (!forceRefresh) {
+            JSObject cached = idTokenCache.get(provider);
+            if (cached != null) {
+                callback.onResult(AuthResult.success(cached));
+                return;
+            }
+        }
+
+        // A forced refresh must not be answered by a non-forced call that started earlier
+        String flightKey = forceRefresh ? provider + ":force" : provider;
+        long cacheGeneration = idTokenCache.generation(provider);
+        idTokenFlights.execute(flightKey, callback, done -> circuitBreakers.<JSObject>execute(provider, result -> {
+            if (result.isSuccess()) {
+                long expiresAt = idTokenCache.put(provider, result.getData(), cacheGeneration);
+                if (expiresAt > 0 && autoRefreshToken) {
+                    refreshScheduler.track(provider, expiresAt);
+                }
+            }
+            done.onResult(result);
+        }, guarded -> authProvider.getIdToken(forceRefresh, metrics.timed(provider, "getIdToken", guarded))));
+    }
+
+    private void refreshIdTokenInBackground(String provider, AuthCallback<JSObject> callback) {
+        withProvider(provider, callback, authProvider -> requestIdToken(provider, authProvider, true, callback));
+    }
+
+    // Creates and initializes the provider on first use; a failure is reported to the caller's callback
+    private <T> void withProvider(String provider, AuthCallback<T> callback, ProviderAction action) {
+        providerRegistry.acquire(provider, result -> {
+            if (result.isSuccess()) {
+                action.run(result.getData());
+            } else {
+                callback.onResult(AuthResult.error(result.getError()));
+            }
+        });
+    }
+
+    private void forgetIdToken(String provider) {
+        idTokenCache.invalidate(provider);
+        refreshScheduler.untrack(provider);
+    }
+
+    // Forgets the provider's token now and keeps new ones out of the cache until the returned callback runs, so a
+    // getIdToken racing a sign-out cannot leave a token cached and refreshed for a session that is gone
+    private <T> AuthCallback<T> forgetIdTokenUntil(String provider, AuthCallback<T> callback) {
+        idTokenCache.suspend(provider);
+        refreshScheduler.untrack(provider);
+        return result -> {
+            idTokenCache.resume(provider);
+            refreshScheduler.untrack(provider);
+            callback.onResult(result);
+        };
     }
 
     public void setCustomParameters(String provider, JSObject parameters, AuthCallback<Void> callback) {
@@ -312,32 +627,200 @@ public class CapacitorAuthManager {
         callback.onResult(AuthResult.success(null));
     }
 
+    // With spillSession, a switch from session to local writes the values held in memory instead of dropping them
+    public void setPersistence(String persistence, boolean spillSession, AuthCallback<Void> callback) {
+        for (AuthStorage.Persistence value : AuthStorage.Persistence.values()) {
+            if (value.getValue().equals(persistence)) {
+                storage.setPersistence(persistence, spillSession);
+                callback.onResult(AuthResult.success(null));
+                return;
+            }
+        }
+        callback.onResult(AuthResult.error(new Exception("Unknown persistence: " + persistence)));
+    }
+
     public void revokeAccess(JSObject options, AuthCallback<Void> callback) {
-        if (!isInitialized) {
+        if (!isInitialized()) {
             callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider;
+        String provider = options != null && options.has("provider") ? options.getString("provider") : currentProvider();
         
         if (provider == null) {
             callback.onResult(AuthResult.error(new Exception("No provider specified")));
             return;
         }
 
-        BaseAuthProvider authProvider = providers.get(provider);
-        if (authProvider == null) {
-            callback.onResult(AuthResult.error(new Exception("Provider " + provider + " not configured")));
+        String token = options != null && options.has("token") ? options.getString("token") : null;
+        withProvider(provider, callback, authProvider -> authProvider.revokeAccess(token, metrics.timed(provider, "revokeAccess", forgetIdTokenUntil(provider, callback))));
+    }
+
+    public void registerProviderFactory(String provider, ProviderFactory factory) {
+        providerRegistry.registerFactory(provider, factory);
+    }
+
+    // Creates and initializes the given providers on a background thread ahead of first use
+    public void warmUp(Collection<String> providers, AuthCallback<JSObject> callback) {
+        if (!isInitialized()) {
+            callback.onResult(AuthResult.error(new Exception("Auth manager not initialized")));
             return;
         }
 
-        String token = options != null && options.has("token") ? options.getString("token") : null;
-        authProvider.revokeAccess(token, callback);
+        providerRegistry.warmUp(providers, result -> {
+            if (result.isSuccess()) {
+                logger.debug("Provider warm-up finished: %s", result.getData());
+            }
+            callback.onResult(result);
+        });
+    }
+
+    // Logs a startup report and returns the providers that failed outright; timed-out ones are still starting
+    private List<String> logStartup(JSObject report, boolean required) {
+        List<String> failed = new ArrayList<>();
+        Iterator<String> names = report.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            JSONObject outcome = report.optJSONObject(name);
+            if (outcome == null || outcome.optBoolean("ready", false)) {
+                logger.debug("Provider %s started in %d ms", name, outcome != null ? outcome.optLong("initMs") : -1);
+            } else if (outcome.optBoolean("timedOut", false)) {
+                logger.warn("Provider %s is not ready yet and keeps starting in the background", name);
+            } else if (required) {
+                failed.add(name);
+            } else {
+                logger.warn("Optional provider %s failed to start: %s", name, outcome.optString("error"));
+            }
+        }
+        return failed;
+    }
+
+    public long getProviderInitDurationMs(String provider) {
+        return providerRegistry.getInitDurationMs(provider);
+    }
+
+    // "closed", "open" or "half-open"
+    public String getProviderCircuitState(String provider) {
+        return circuitBreakers.getState(provider);
+    }
+
+    // Timeout currently applied to the provider's token calls, adapted from their recent latencies
+    public long getProviderTimeoutMs(String provider) {
+        return circuitBreakers.getTimeoutMs(provider);
+    }
+
+    public long getCoalescedRefreshCount() {
+        return refreshFlights.getCoalescedCount();
+    }
+
+    public long getCoalescedIdTokenCount() {
+        return idTokenFlights.getCoalescedCount();
+    }
+
+    public long getIdTokenCacheHitCount() {
+        return idTokenCache.getHitCount();
+    }
+
+    // { operations, counters, providers }; reset only clears the per-operation histograms, the counters are cumulative
+    public JSObject getMetrics(boolean reset) {
+        JSObject counters = new JSObject();
+        counters.put("coalescedRefreshes", getCoalescedRefreshCount());
+        counters.put("coalescedIdTokens", getCoalescedIdTokenCount());
+        counters.put("idTokenCacheHits", getIdTokenCacheHitCount());
+        counters.put("authStateQueueDepth", getAuthStateQueueDepth());
+        counters.put("coalescedAuthStates", getCoalescedAuthStateCount());
+        counters.put("droppedLogRecords", logger.getDroppedCount());
+
+        JSObject providers = new JSObject();
+        for (String provider : providerRegistry.configuredProviders()) {
+            JSObject status = new JSObject();
+            status.put("initMs", getProviderInitDurationMs(provider));
+            status.put("circuit", getProviderCircuitState(provider));
+            status.put("timeoutMs", getProviderTimeoutMs(provider));
+            providers.put(provider, status);
+        }
+
+        JSObject snapshot = new JSObject();
+        snapshot.put("operations", metrics.snapshot(reset));
+        snapshot.put("counters", counters);
+        snapshot.put("providers", providers);
+        return snapshot;
+    }
+
+    public void setTokenRefreshListener(TokenRefreshListener listener) {
+        refreshScheduler.setListener(listener);
+    }
+
+    public void pauseTokenRefresh() {
+        refreshScheduler.pause();
+    }
+
+    public void resumeTokenRefresh() {
+        refreshScheduler.resume();
+    }
+
+    public int getAuthStateQueueDepth() {
+        return authStateDispatcher.getQueueDepth();
+    }
+
+    public long getCoalescedAuthStateCount() {
+        return authStateDispatcher.getCoalescedCount();
+    }
+
+    // Safe to call from the main thread: it only queues the commit on the storage thread and never waits for the disk
+    public Future<Boolean> flushStorage() {
+        return storage.flushAsync();
+    }
+
+    public void setDiagnosticLogEnabled(boolean enabled) {
+        if (enabled == (logger.getLogFile() != null)) {
+            return;
+        }
+        // Kept out of Auto Backup and device transfer, since the log can name users and providers
+        logger.setLogFile(enabled
+                ? new DiagnosticLogFile(new File(context.getNoBackupFilesDir(), DIAGNOSTIC_LOG_DIRECTORY), DIAGNOSTIC_LOG_MAX_FILE_BYTES)
+                : null);
+    }
+
+    public void flushDiagnosticLog() {
+        logger.flush();
+    }
+
+    public void exportDiagnosticLog(AuthCallback<String> callback) {
+        DiagnosticLogFile logFile = logger.getLogFile();
+        if (logFile == null) {
+            callback.onResult(AuthResult.error(new Exception("Diagnostic log is not enabled")));
+            return;
+        }
+
+        try {
+            callback.onResult(AuthResult.success(logFile.export()));
+        } catch (IOException e) {
+            callback.onResult(AuthResult.error(e));
+        }
     }
 
     private void notifyAuthStateChange(JSObject user) {
-        for (AuthStateListener listener : authStateListeners.values()) {
-            listener.onAuthStateChange(user);
+        authStateDispatcher.publish(user);
+    }
+
+    private static final class State {
+        static final State INITIAL = new State(false, null);
+
+        final boolean initialized;
+        final String currentProvider;
+
+        private State(boolean initialized, String currentProvider) {
+            this.initialized = initialized;
+            this.currentProvider = currentProvider;
+        }
+
+        State withInitialized(boolean initialized) {
+            return new State(initialized, currentProvider);
+        }
+
+        State withCurrentProvider(String currentProvider) {
+            return new State(initialized, currentProvider);
         }
     }
 
@@ -346,12 +829,27 @@ public class CapacitorAuthManager {
         void onResult(AuthResult<T> result);
     }
 
+    public interface ProviderFactory {
+        BaseAuthProvider create(JSObject options);
+    }
+
+    private interface ProviderAction {
+        void run(BaseAuthProvider authProvider);
+    }
+
+    public interface TokenRefreshListener {
+        void onTokenRefresh(String provider, AuthResult<JSObject> result);
+    }
+
     public interface AuthStateListener {
         void onAuthStateChange(JSObject user);
     }
 
     // Result wrapper
     public static class AuthResult<T> {
+        // Results are immutable, so every void or empty success can share one instance
+        private static final AuthResult<Object> EMPTY_SUCCESS = new AuthResult<>(true, null, null);
+
         private final boolean success;
         private final T data;
         private final Exception error;
@@ -362,7 +860,11 @@ public class CapacitorAuthManager {
             this.error = error;
         }
 
+        @SuppressWarnings("unchecked")
         public static <T> AuthResult<T> success(T data) {
+            if (data == null) {
+                return (AuthResult<T>) EMPTY_SUCCESS;
+            }
             return new AuthResult<>(true, data, null);
         }
 
@@ -1,469 +1,671 @@
 package com.aoneahsan.capacitor_auth_manager;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @CapacitorPlugin(name = "CapacitorAuthManager")
 public class CapacitorAuthManagerPlugin extends Plugin {
 
+    // Copied into each plugin instance when the bridge loads it; a configured provider without a factory is
+    // reported as not available on Android
+    private static final Map<String, CapacitorAuthManager.ProviderFactory> providerFactories = new ConcurrentHashMap<>();
+
     private CapacitorAuthManager implementation;
+    // Method bodies run here rather than on the bridge thread, so one slow call never holds up the others
+    private final PluginExecutor pluginExecutor = new PluginExecutor();
 
     @Override
     public void load() {
-        implementation = new CapacitorAuthManager(getContext(), getActivity());
+        // The backend must be chosen before storage starts opening, so it comes from static plugin config
+        StorageBackend.Factory storageBackendFactory = "log".equals(getConfig().getString("storageBackend", "preferences"))
+                ? new LogStorageBackend.Factory(getContext())
+                : new PreferencesStorageBackend.Factory(getContext());
+        implementation = new CapacitorAuthManager(getContext(), getActivity(), storageBackendFactory);
+        for (Map.Entry<String, CapacitorAuthManager.ProviderFactory> entry : providerFactories.entrySet()) {
+            implementation.registerProviderFactory(entry.getKey(), entry.getValue());
+        }
+        implementation.setTokenRefreshListener((provider, result) -> {
+            JSObject ret = new JSObject();
+            ret.put("provider", provider);
+            ret.put("success", result.isSuccess());
+            if (!result.isSuccess()) {
+                ret.put("error", result.getError().getMessage());
+            }
+            notifyListeners("tokenRefresh", ret);
+        });
+    }
+
+    // Makes a provider implementation available to the plugin. The factory is only called on the provider's first
+    // use, so its SDK is not loaded before then. Call this before the bridge loads the plugin, e.g. in
+    // Application.onCreate or in MainActivity.onCreate before super.onCreate
+    public static void registerProviderFactory(String provider, CapacitorAuthManager.ProviderFactory factory) {
+        providerFactories.put(provider, factory);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        implementation.pauseTokenRefresh();
+        implementation.flushStorage();
+        implementation.flushDiagnosticLog();
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        implementation.resumeTokenRefresh();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        implementation.pauseTokenRefresh();
+        implementation.flushStorage();
+        implementation.flushDiagnosticLog();
+        super.handleOnDestroy();
     }
 
     @PluginMethod
     public void initialize(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            if (options == null) {
-                call.reject("Options are required");
-                return;
-            }
-
-            implementation.initialize(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                if (options == null) {
+                    call.reject("Options are required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to initialize: " + e.getMessage());
-        }
+
+                implementation.initialize(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to initialize: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void signIn(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            JSObject credentials = call.getObject("credentials");
-            JSObject options = call.getObject("options");
-
-            if (provider == null) {
-                call.reject("Provider is required");
-                return;
-            }
-
-            implementation.signIn(provider, credentials, options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                JSObject credentials = call.getObject("credentials");
+                JSObject options = call.getObject("options");
+
+                if (provider == null) {
+                    call.reject("Provider is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Sign in failed: " + e.getMessage());
-        }
+
+                implementation.signIn(provider, credentials, options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        reject(call, result.getError());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Sign in failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void signOut(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.signOut(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Sign out failed: " + e.getMessage());
-        }
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                
+                implementation.signOut(options, result -> {
+                    if (result.isSuccess()) {
+                        if (result.getData() != null) {
+                            call.resolve(result.getData());
+                        } else {
+                            call.resolve();
+                        }
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Sign out failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void getCurrentUser(PluginCall call) {
-        try {
-            implementation.getCurrentUser(result -> {
-                if (result.isSuccess()) {
-                    JSObject user = result.getData();
-                    if (user != null) {
-                        call.resolve(user);
+        // A lookup that first has to create a provider runs its SDK startup, so it must not hold up the fast lane
+        PluginExecutor.Lane lane = implementation.isCurrentUserLookupReady() ? PluginExecutor.Lane.FAST : PluginExecutor.Lane.SLOW;
+        pluginExecutor.execute(lane, call, () -> {
+            try {
+                implementation.getCurrentUser(result -> {
+                    if (result.isSuccess()) {
+                        JSObject user = result.getData();
+                        if (user != null) {
+                            call.resolve(user);
+                        } else {
+                            call.resolve(new JSObject());
+                        }
                     } else {
-                        call.resolve(new JSObject());
+                        call.reject(result.getError().getMessage());
                     }
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to get current user: " + e.getMessage());
-        }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to get current user: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void refreshToken(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.refreshToken(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Token refresh failed: " + e.getMessage());
-        }
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                
+                implementation.refreshToken(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        reject(call, result.getError());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Token refresh failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void addAuthStateListener(PluginCall call) {
-        try {
-            String callbackId = implementation.addAuthStateListener(user -> {
-                JSObject ret = new JSObject();
-                if (user != null) {
-                    ret.put("user", user);
-                } else {
-                    ret.put("user", JSObject.NULL);
-                }
-                notifyListeners("authStateChange", ret);
-            });
+        // Emitting the current state looks the user up, which may first have to start a provider
+        PluginExecutor.Lane lane = implementation.isCurrentUserLookupReady() ? PluginExecutor.Lane.FAST : PluginExecutor.Lane.SLOW;
+        pluginExecutor.execute(lane, call, () -> {
+            try {
+                String callbackId = implementation.addAuthStateListener(user -> {
+                    JSObject ret = new JSObject();
+                    if (user != null) {
+                        ret.put("user", user);
+                    } else {
+                        ret.put("user", JSObject.NULL);
+                    }
+                    notifyListeners("authStateChange", ret);
+                });
 
-            JSObject ret = new JSObject();
-            ret.put("callbackId", callbackId);
-            call.resolve(ret);
-        } catch (Exception e) {
-            call.reject("Failed to add listener: " + e.getMessage());
-        }
+                JSObject ret = new JSObject();
+                ret.put("callbackId", callbackId);
+                call.resolve(ret);
+            } catch (Exception e) {
+                call.reject("Failed to add listener: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void removeAllListeners(PluginCall call) {
-        try {
-            implementation.removeAllListeners();
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to remove listeners: " + e.getMessage());
-        }
+        pluginExecutor.execute(PluginExecutor.Lane.FAST, call, () -> {
+            try {
+                implementation.removeAllListeners();
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to remove listeners: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void isSupported(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            if (provider == null) {
-                call.reject("Provider is required");
-                return;
-            }
-
-            implementation.isSupported(provider, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.FAST, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                if (provider == null) {
+                    call.reject("Provider is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to check support: " + e.getMessage());
-        }
+
+                implementation.isSupported(provider, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to check support: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void configure(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            JSObject options = call.getObject("options");
+        pluginExecutor.execute(PluginExecutor.Lane.FAST, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                JSObject options = call.getObject("options");
+
+                if (provider == null || options == null) {
+                    call.reject("Provider and options are required");
+                    return;
+                }
 
-            if (provider == null || options == null) {
-                call.reject("Provider and options are required");
-                return;
+                implementation.configure(provider, options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Configuration failed: " + e.getMessage());
             }
-
-            implementation.configure(provider, options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Configuration failed: " + e.getMessage());
-        }
+        });
     }
 
     @PluginMethod
     public void linkAccount(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            JSObject credentials = call.getObject("credentials");
-            JSObject options = call.getObject("options");
-
-            if (provider == null) {
-                call.reject("Provider is required");
-                return;
-            }
-
-            implementation.linkAccount(provider, credentials, options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                JSObject credentials = call.getObject("credentials");
+                JSObject options = call.getObject("options");
+
+                if (provider == null) {
+                    call.reject("Provider is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Account linking failed: " + e.getMessage());
-        }
+
+                implementation.linkAccount(provider, credentials, options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Account linking failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void unlinkAccount(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            if (provider == null) {
-                call.reject("Provider is required");
-                return;
-            }
-
-            implementation.unlinkAccount(provider, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                if (provider == null) {
+                    call.reject("Provider is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Account unlinking failed: " + e.getMessage());
-        }
+
+                implementation.unlinkAccount(provider, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Account unlinking failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void sendPasswordResetEmail(PluginCall call) {
-        try {
-            String email = call.getString("email");
-            JSObject actionCodeSettings = call.getObject("actionCodeSettings");
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String email = call.getString("email");
+                JSObject actionCodeSettings = call.getObject("actionCodeSettings");
+
+                if (email == null) {
+                    call.reject("Email is required");
+                    return;
+                }
 
-            if (email == null) {
-                call.reject("Email is required");
-                return;
+                implementation.sendPasswordResetEmail(email, actionCodeSettings, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to send password reset email: " + e.getMessage());
             }
-
-            implementation.sendPasswordResetEmail(email, actionCodeSettings, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to send password reset email: " + e.getMessage());
-        }
+        });
     }
 
     @PluginMethod
     public void sendEmailVerification(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.sendEmailVerification(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to send email verification: " + e.getMessage());
-        }
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                
+                implementation.sendEmailVerification(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to send email verification: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void sendSmsCode(PluginCall call) {
-        try {
-            String phoneNumber = call.getString("phoneNumber");
-            String recaptchaToken = call.getString("recaptchaToken");
-            String testCode = call.getString("testCode");
-
-            if (phoneNumber == null) {
-                call.reject("Phone number is required");
-                return;
-            }
-
-            implementation.sendSmsCode(phoneNumber, recaptchaToken, testCode, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String phoneNumber = call.getString("phoneNumber");
+                String recaptchaToken = call.getString("recaptchaToken");
+                String testCode = call.getString("testCode");
+
+                if (phoneNumber == null) {
+                    call.reject("Phone number is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to send SMS code: " + e.getMessage());
-        }
+
+                implementation.sendSmsCode(phoneNumber, recaptchaToken, testCode, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to send SMS code: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void verifySmsCode(PluginCall call) {
-        try {
-            String phoneNumber = call.getString("phoneNumber");
-            String code = call.getString("code");
-            String verificationId = call.getString("verificationId");
-
-            if (phoneNumber == null || code == null) {
-                call.reject("Phone number and code are required");
-                return;
-            }
-
-            implementation.verifySmsCode(phoneNumber, code, verificationId, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String phoneNumber = call.getString("phoneNumber");
+                String code = call.getString("code");
+                String verificationId = call.getString("verificationId");
+
+                if (phoneNumber == null || code == null) {
+                    call.reject("Phone number and code are required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("SMS verification failed: " + e.getMessage());
-        }
+
+                implementation.verifySmsCode(phoneNumber, code, verificationId, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("SMS verification failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void sendEmailCode(PluginCall call) {
-        try {
-            String email = call.getString("email");
-            String recaptchaToken = call.getString("recaptchaToken");
-            String testCode = call.getString("testCode");
-
-            if (email == null) {
-                call.reject("Email is required");
-                return;
-            }
-
-            implementation.sendEmailCode(email, recaptchaToken, testCode, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String email = call.getString("email");
+                String recaptchaToken = call.getString("recaptchaToken");
+                String testCode = call.getString("testCode");
+
+                if (email == null) {
+                    call.reject("Email is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to send email code: " + e.getMessage());
-        }
+
+                implementation.sendEmailCode(email, recaptchaToken, testCode, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to send email code: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void verifyEmailCode(PluginCall call) {
-        try {
-            String email = call.getString("email");
-            String code = call.getString("code");
-            String verificationId = call.getString("verificationId");
-
-            if (email == null || code == null) {
-                call.reject("Email and code are required");
-                return;
-            }
-
-            implementation.verifyEmailCode(email, code, verificationId, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String email = call.getString("email");
+                String code = call.getString("code");
+                String verificationId = call.getString("verificationId");
+
+                if (email == null || code == null) {
+                    call.reject("Email and code are required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Email verification failed: " + e.getMessage());
-        }
+
+                implementation.verifyEmailCode(email, code, verificationId, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Email verification failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void updateProfile(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            if (options == null) {
-                options = new JSObject();
-            }
-
-            implementation.updateProfile(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve(result.getData());
-                } else {
-                    call.reject(result.getError().getMessage());
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                if (options == null) {
+                    options = new JSObject();
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Profile update failed: " + e.getMessage());
-        }
+
+                implementation.updateProfile(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Profile update failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void deleteAccount(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.deleteAccount(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Account deletion failed: " + e.getMessage());
-        }
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                
+                implementation.deleteAccount(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Account deletion failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void getIdToken(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.getIdToken(options, result -> {
-                if (result.isSuccess()) {
-                    JSObject ret = new JSObject();
-                    ret.put("token", result.getData().getString("token"));
-                    call.resolve(ret);
-                } else {
-                    call.reject(result.getError().getMessage());
-                }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to get ID token: " + e.getMessage());
-        }
+        JSObject options = call.getObject("options");
+        // Only cache hits stay on the fast lane; a miss or a forced refresh is a network round trip
+        PluginExecutor.Lane lane = implementation.canServeIdTokenFromCache(options) ? PluginExecutor.Lane.FAST : PluginExecutor.Lane.SLOW;
+        pluginExecutor.execute(lane, call, () -> {
+            try {
+                implementation.getIdToken(options, result -> {
+                    if (result.isSuccess()) {
+                        JSObject ret = new JSObject();
+                        ret.put("token", result.getData().getString("token"));
+                        call.resolve(ret);
+                    } else {
+                        reject(call, result.getError());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to get ID token: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
     public void setCustomParameters(PluginCall call) {
-        try {
-            String provider = call.getString("provider");
-            JSObject parameters = call.getObject("parameters");
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                String provider = call.getString("provider");
+                JSObject parameters = call.getObject("parameters");
+
+                if (provider == null || parameters == null) {
+                    call.reject("Provider and parameters are required");
+                    return;
+                }
+
+                implementation.setCustomParameters(provider, parameters, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to set custom parameters: " + e.getMessage());
+            }
+        });
+    }
 
-            if (provider == null || parameters == null) {
-                call.reject("Provider and parameters are required");
-                return;
+    @PluginMethod
+    public void revokeAccess(PluginCall call) {
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSObject options = call.getObject("options");
+                
+                implementation.revokeAccess(options, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Access revocation failed: " + e.getMessage());
             }
+        });
+    }
 
-            implementation.setCustomParameters(provider, parameters, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+    @PluginMethod
+    public void warmUp(PluginCall call) {
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                JSArray providers = call.getArray("providers");
+                if (providers == null) {
+                    call.reject("Providers are required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Failed to set custom parameters: " + e.getMessage());
-        }
+
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < providers.length(); i++) {
+                    names.add(providers.getString(i));
+                }
+                implementation.warmUp(names, result -> {
+                    if (result.isSuccess()) {
+                        call.resolve(result.getData());
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Warm-up failed: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
-    public void revokeAccess(PluginCall call) {
-        try {
-            JSObject options = call.getObject("options");
-            
-            implementation.revokeAccess(options, result -> {
-                if (result.isSuccess()) {
-                    call.resolve();
-                } else {
-                    call.reject(result.getError().getMessage());
+    public void exportDiagnosticLog(PluginCall call) {
+        pluginExecutor.execute(PluginExecutor.Lane.SLOW, call, () -> {
+            try {
+                implementation.exportDiagnosticLog(result -> {
+                    if (result.isSuccess()) {
+                        JSObject ret = new JSObject();
+                        ret.put("log", result.getData());
+                        call.resolve(ret);
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to export diagnostic log: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void setPersistence(PluginCall call) {
+        pluginExecutor.execute(PluginExecutor.Lane.FAST, call, () -> {
+            try {
+                String persistence = call.getString("persistence");
+                if (persistence == null) {
+                    call.reject("Persistence is required");
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            call.reject("Access revocation failed: " + e.getMessage());
+
+                implementation.setPersistence(persistence, call.getBoolean("spillSession", false), result -> {
+                    if (result.isSuccess()) {
+                        call.resolve();
+                    } else {
+                        call.reject(result.getError().getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                call.reject("Failed to set persistence: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        pluginExecutor.execute(PluginExecutor.Lane.FAST, call, () -> {
+            try {
+                boolean reset = call.getBoolean("reset", false);
+                JSObject metrics = implementation.getMetrics(reset);
+                metrics.put("lanes", pluginExecutor.snapshot(reset));
+                call.resolve(metrics);
+            } catch (Exception e) {
+                call.reject("Failed to get metrics: " + e.getMessage());
+            }
+        });
+    }
+
+    // Keeps the error code of failures such as an open provider circuit so apps can tell them apart
+    private static void reject(PluginCall call, Exception error) {
+        if (error instanceof AuthException) {
+            call.reject(error.getMessage(), ((AuthException) error).getCode());
+        } else {
+            call.reject(error.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+// Tagged binary form of a flat parameter map, stored as "b2:" + unpadded Base64 with varint counts and lengths. Base64
+// costs a third on top, so a map whose JSON text is no longer, such as a few short strings, is stored as JSON instead
+final class CustomParametersCodec {
+    private static final String BINARY_PREFIX = "b2:";
+    // Written by earlier versions with 4-byte counts and lengths; still read, and rewritten on first use
+    private static final String LEGACY_BINARY_PREFIX = "b1:";
+    private static final byte TYPE_STRING = 's';
+    private static final byte TYPE_BOOLEAN = 'b';
+    private static final byte TYPE_INT = 'i';
+    private static final byte TYPE_LONG = 'l';
+    private static final byte TYPE_DOUBLE = 'd';
+    private static final byte TYPE_NULL = 'n';
+    // Nested objects and arrays are rare in custom parameters, so they keep their JSON text
+    private static final byte TYPE_JSON = 'j';
+    // android.util.Base64 is not available to local unit tests and java.util.Base64 needs API 26
+    private static final char[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private CustomParametersCodec() {
+    }
+
+    // The shorter of the binary and the JSON form; decode accepts either
+    static String encode(JSONObject parameters) {
+        String json = parameters.toString();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, parameters.length());
+        Iterator<String> keys = parameters.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            writeString(out, key);
+            Object value = parameters.opt(key);
+            if (value instanceof String) {
+                out.write(TYPE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Boolean) {
+                out.write(TYPE_BOOLEAN);
+                out.write((Boolean) value ? 1 : 0);
+            } else if (value instanceof Integer) {
+                out.write(TYPE_INT);
+                writeVarLong(out, zigZag((Integer) value));
+            } else if (value instanceof Long) {
+                out.write(TYPE_LONG);
+                writeVarLong(out, zigZag((Long) value));
+            } else if (value instanceof Number) {
+                out.write(TYPE_DOUBLE);
+                long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            } else if (value == null || value == JSONObject.NULL) {
+                out.write(TYPE_NULL);
+            } else {
+                out.write(TYPE_JSON);
+                writeString(out, value.toString());
+            }
+        }
+        byte[] bytes = out.toByteArray();
+        if (BINARY_PREFIX.length() + (bytes.length * 4 + 2) / 3 >= json.length()) {
+            return json;
+        }
+        return BINARY_PREFIX + toBase64(bytes);
+    }
+
+    // Returns null when the stored value is corrupt
+    static JSObject decode(String stored) {
+        try {
+            boolean legacy = stored.startsWith(LEGACY_BINARY_PREFIX);
+            if (!legacy && !stored.startsWith(BINARY_PREFIX)) {
+                return JSObject.fromJSONObject(new JSONObject(stored));
+            }
+            ByteBuffer in = ByteBuffer.wrap(fromBase64(stored.substring(BINARY_PREFIX.length())));
+            JSObject parameters = new JSObject();
+            long count = legacy ? in.getInt() : readVarLong(in);
+            for (long i = 0; i < count; i++) {
+                String key = readString(in, legacy);
+                byte type = in.get();
+                switch (type) {
+                    case TYPE_STRING:
+                        parameters.put(key, readString(in, legacy));
+                        break;
+                    case TYPE_BOOLEAN:
+                        parameters.put(key, in.get() != 0);
+                        break;
+                    case TYPE_INT:
+                        parameters.put(key, legacy ? in.getInt() : (int) unZigZag(readVarLong(in)));
+                        break;
+                    case TYPE_LONG:
+                        parameters.put(key, legacy ? in.getLong() : unZigZag(readVarLong(in)));
+                        break;
+                    case TYPE_DOUBLE:
+                        parameters.put(key, in.getDouble());
+                        break;
+                    case TYPE_NULL:
+                        parameters.put(key, JSONObject.NULL);
+                        break;
+                    case TYPE_JSON:
+                        String json = readString(in, legacy);
+                        parameters.put(key, json.startsWith("[") ? new JSONArray(json) : new JSONObject(json));
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return parameters;
+        } catch (JSONException | IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    // Values are immutable except nested objects and arrays, which are copied through their JSON text
+    static JSObject copy(JSObject parameters) {
+        JSObject copy = new JSObject();
+        Iterator<String> keys = parameters.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = parameters.opt(key);
+            try {
+                if (value instanceof JSONObject) {
+                    value = new JSONObject(value.toString());
+                } else if (value instanceof JSONArray) {
+                    value = new JSONArray(value.toString());
+                }
+            } catch (JSONException e) {
+                continue;
+            }
+            copy.put(key, value);
+        }
+        return copy;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in, boolean legacy) {
+        long length = legacy ? in.getInt() : readVarLong(in);
+        // A corrupt length would otherwise allocate up to 2 GB before the read fails
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Seven bits per byte, low bits first; the high bit marks that another byte follows
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint");
+    }
+
+    // Maps small negative numbers to small varints
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String toBase64(byte[] bytes) {
+        StringBuilder text = new StringBuilder((bytes.length * 4 + 2) / 3);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int chunk = (bytes[i] & 0xFF) << 16;
+            if (i + 1 < bytes.length) {
+                chunk |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < bytes.length) {
+                chunk |= bytes[i + 2] & 0xFF;
+            }
+            int chars = Math.min(4, (bytes.length - i) * 4 / 3 + 1);
+            for (int c = 0; c < chars; c++) {
+                text.append(BASE64_ALPHABET[(chunk >> (18 - 6 * c)) & 0x3F]);
+            }
+        }
+        return text.toString();
+    }
+
+    // Accepts padded input, as written by android.util.Base64 for legacy values
+    private static byte[] fromBase64(String text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) == '=') {
+            length--;
+        }
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length");
+        }
+        byte[] bytes = new byte[length * 3 / 4];
+        int bits = 0;
+        int bitCount = 0;
+        int written = 0;
+        for (int i = 0; i < length; i++) {
+            int value = base64Value(text.charAt(i));
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                bytes[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        return bytes;
+    }
+
+    private static int base64Value(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+') {
+            return 62;
+        } else if (c == '/') {
+            return 63;
+        }
+        throw new IllegalArgumentException("Invalid Base64 character " + c);
+    }
+}
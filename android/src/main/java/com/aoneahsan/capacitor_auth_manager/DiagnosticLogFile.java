@@ -0,0 +1,167 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+// Size-capped log on disk: the current file rotates into a single ".1" backup, so disk use stays under twice the cap
+final class DiagnosticLogFile {
+    private static final String FILE_NAME = "auth.log";
+    private static final String ROTATED_FILE_NAME = "auth.log.1";
+    private static final int BUFFER_BYTES = 16 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final File file;
+    private final File rotatedFile;
+    private final long maxFileBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date date = new Date();
+    private FileChannel channel;
+    private long fileSize;
+    private long lastFlushAt;
+    private boolean closed = false;
+
+    DiagnosticLogFile(File directory, long maxFileBytes) {
+        this.file = new File(directory, FILE_NAME);
+        this.rotatedFile = new File(directory, ROTATED_FILE_NAME);
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    // Lines are buffered in memory and reach disk when the buffer fills, on flushIfDue, or on flush
+    synchronized void append(long timestamp, AuthLogger.LogLevel level, String message, Throwable throwable) {
+        if (closed) {
+            return;
+        }
+        date.setTime(timestamp);
+        StringBuilder line = new StringBuilder(message.length() + 32)
+                .append(timestampFormat.format(date))
+                .append(' ')
+                .append(level.getTag())
+                .append(' ')
+                .append(message)
+                .append('\n');
+        if (throwable != null) {
+            line.append(Log.getStackTraceString(throwable)).append('\n');
+        }
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.capacity()) {
+            // Oversized stack traces are cut rather than growing the buffer
+            bytes = Arrays.copyOf(bytes, buffer.capacity());
+        }
+        try {
+            // Opening here also loads the size of a file left by a previous run
+            channel();
+            if (fileSize + buffer.position() + bytes.length > maxFileBytes) {
+                flush();
+                rotate();
+            } else if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            buffer.put(bytes);
+        } catch (IOException e) {
+            closeChannel();
+            buffer.clear();
+        }
+    }
+
+    synchronized void flushIfDue(long now) {
+        if (buffer.position() > 0 && now - lastFlushAt >= FLUSH_INTERVAL_MS) {
+            flushQuietly();
+        }
+    }
+
+    synchronized void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            closeChannel();
+            buffer.clear();
+        }
+    }
+
+    // Rotated file first, then the current one, as a single UTF-8 string
+    synchronized String export() throws IOException {
+        flush();
+        StringBuilder log = new StringBuilder();
+        appendFile(log, rotatedFile);
+        appendFile(log, file);
+        return log.toString();
+    }
+
+    synchronized void close() {
+        flushQuietly();
+        closeChannel();
+        closed = true;
+    }
+
+    private void flush() throws IOException {
+        lastFlushAt = System.currentTimeMillis();
+        if (buffer.position() == 0) {
+            return;
+        }
+        FileChannel target = channel();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileSize += target.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+            channel = new FileOutputStream(file, true).getChannel();
+            fileSize = channel.size();
+        }
+        return channel;
+    }
+
+    private void rotate() throws IOException {
+        closeChannel();
+        if (rotatedFile.exists() && !rotatedFile.delete()) {
+            throw new IOException("Unable to delete " + rotatedFile);
+        }
+        if (file.exists() && !file.renameTo(rotatedFile)) {
+            throw new IOException("Unable to rotate " + file);
+        }
+        channel();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+            channel = null;
+        }
+    }
+
+    private static void appendFile(StringBuilder log, File source) throws IOException {
+        if (!source.exists()) {
+            return;
+        }
+        try (FileChannel input = new RandomAccessFile(source, "r").getChannel()) {
+            ByteBuffer contents = ByteBuffer.allocate((int) input.size());
+            while (contents.hasRemaining() && input.read(contents) >= 0) {
+                // Keep reading until the whole file is in the buffer
+            }
+            log.append(new String(contents.array(), 0, contents.position(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.util.Base64;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-provider ID token results, served until skewMs before the token expires
+final class IdTokenCache {
+    private static final long DEFAULT_SKEW_MS = 5 * 60 * 1000;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Stamps for invalidations; results fetched before one are not cached afterwards
+    private final AtomicLong stamps = new AtomicLong();
+    // Per provider, so invalidating one provider does not discard the fetches in flight for the others
+    private final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<>();
+    // Applies to every provider; written under this
+    private volatile long clearedAt;
+    // Sign-outs in progress, per provider and for all providers; results are not cached while one runs. Guarded by this
+    private final Map<String, Integer> suspended = new HashMap<>();
+    private int suspendedAll;
+    private final AtomicLong hitCount = new AtomicLong();
+    private volatile long skewMs = DEFAULT_SKEW_MS;
+
+    void setSkewMs(long skewMs) {
+        this.skewMs = Math.max(0, skewMs);
+    }
+
+    JSObject get(String provider) {
+        Entry entry = entries.get(provider);
+        if (entry == null || System.currentTimeMillis() >= entry.expiresAt - skewMs) {
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.result;
+    }
+
+    long generation(String provider) {
+        Long invalidatedAt = generations.get(provider);
+        return invalidatedAt != null ? Math.max(invalidatedAt, clearedAt) : clearedAt;
+    }
+
+    // Returns the cached expiry, or 0 when the result has no known expiry or was invalidated meanwhile
+    long put(String provider, JSObject result, long expectedGeneration) {
+        long expiresAt = parseExpiresAt(result);
+        if (expiresAt <= 0) {
+            return 0;
+        }
+        synchronized (this) {
+            if (generation(provider) != expectedGeneration || suspendedAll > 0 || suspended.containsKey(provider)) {
+                return 0;
+            }
+            entries.put(provider, new Entry(result, expiresAt));
+            return expiresAt;
+        }
+    }
+
+    synchronized void invalidate(String provider) {
+        generations.put(provider, stamps.incrementAndGet());
+        entries.remove(provider);
+    }
+
+    synchronized void clear() {
+        clearedAt = stamps.incrementAndGet();
+        generations.clear();
+        entries.clear();
+    }
+
+    // Invalidates the provider and keeps its results out of the cache until the matching resume
+    synchronized void suspend(String provider) {
+        invalidate(provider);
+        Integer count = suspended.get(provider);
+        suspended.put(provider, count != null ? count + 1 : 1);
+    }
+
+    // Invalidates again, so a fetch that started during the sign-out cannot be cached once it finishes
+    synchronized void resume(String provider) {
+        Integer count = suspended.get(provider);
+        if (count != null && count > 1) {
+            suspended.put(provider, count - 1);
+        } else {
+            suspended.remove(provider);
+        }
+        invalidate(provider);
+    }
+
+    synchronized void suspendAll() {
+        clear();
+        suspendedAll++;
+    }
+
+    synchronized void resumeAll() {
+        if (suspendedAll > 0) {
+            suspendedAll--;
+        }
+        clear();
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    // Prefers an explicit expiresAt (ms) and falls back to the JWT "exp" claim (s)
+    static long parseExpiresAt(JSObject result) {
+        if (result == null) {
+            return 0;
+        }
+        long expiresAt = result.optLong("expiresAt", 0);
+        if (expiresAt > 0) {
+            return expiresAt;
+        }
+        String token = result.optString("token", null);
+        if (token == null) {
+            return 0;
+        }
+        int payloadStart = token.indexOf('.') + 1;
+        int payloadEnd = token.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0) {
+            return 0;
+        }
+        try {
+            byte[] payload = Base64.decode(token.substring(payloadStart, payloadEnd), Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+            long exp = new JSONObject(new String(payload, StandardCharsets.UTF_8)).optLong("exp", 0);
+            return exp > 0 ? exp * 1000 : 0;
+        } catch (IllegalArgumentException | JSONException e) {
+            return 0;
+        }
+    }
+
+    private static final class Entry {
+        final JSObject result;
+        final long expiresAt;
+
+        Entry(JSObject result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded lock-free multi-producer, single-consumer queue of preallocated log slots
+final class LogRingBuffer {
+    interface Consumer {
+        void accept(long timestamp, AuthLogger.LogLevel level, String message, Object[] args, Throwable throwable);
+    }
+
+    private static final class Slot {
+        // Equals the claim position when free, position + 1 once published
+        volatile long sequence;
+        long timestamp;
+        AuthLogger.LogLevel level;
+        String message;
+        Object[] args;
+        Throwable throwable;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    // Only touched by the consumer thread
+    private long head = 0;
+    // Set only while the consumer is about to park, so producers pay for an unpark only when it is idle
+    private volatile Thread waitingConsumer;
+    private volatile boolean closed;
+    private volatile boolean wakeRequested;
+
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+    }
+
+    // Never blocks; returns false and counts a drop when the buffer is full
+    boolean offer(long timestamp, AuthLogger.LogLevel level, String message, Object[] args, Throwable throwable) {
+        long position = tail.get();
+        Slot slot;
+        while (true) {
+            slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        slot.timestamp = timestamp;
+        slot.level = level;
+        slot.message = message;
+        slot.args = args;
+        slot.throwable = throwable;
+        slot.sequence = position + 1;
+        published.incrementAndGet();
+        Thread waiting = waitingConsumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+
+    // Consumer thread only; hands at most maxRecords records to the consumer and returns how many it drained
+    int drain(Consumer consumer, int maxRecords) {
+        int drained = 0;
+        while (drained < maxRecords) {
+            Slot slot = slots[(int) (head & mask)];
+            if (slot.sequence != head + 1) {
+                break;
+            }
+            long timestamp = slot.timestamp;
+            AuthLogger.LogLevel level = slot.level;
+            String message = slot.message;
+            Object[] args = slot.args;
+            Throwable throwable = slot.throwable;
+            slot.level = null;
+            slot.message = null;
+            slot.args = null;
+            slot.throwable = null;
+            slot.sequence = head + slots.length;
+            head++;
+            drained++;
+            consumer.accept(timestamp, level, message, args, throwable);
+        }
+        return drained;
+    }
+
+    // Consumer thread only; parks until a record is published, the buffer is closed or woken, or the timeout passes
+    // (0 for none)
+    void awaitRecords(long timeoutNanos) {
+        waitingConsumer = Thread.currentThread();
+        // Checked after announcing the wait, so a record published, a close or a wake in between is never missed
+        if (!closed && !wakeRequested && slots[(int) (head & mask)].sequence != head + 1) {
+            if (timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        waitingConsumer = null;
+        wakeRequested = false;
+    }
+
+    // Wakes the consumer without publishing a record, so it can act on a request made outside the buffer
+    void wake() {
+        wakeRequested = true;
+        Thread waiting = waitingConsumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    // Wakes the consumer so it can notice that the buffer was detached
+    void close() {
+        closed = true;
+        Thread waiting = waitingConsumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    long getPublishedCount() {
+        return published.get();
+    }
+
+    int getCapacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,378 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.security.crypto.MasterKey;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.KeyTemplates;
+import com.google.crypto.tink.aead.AeadConfig;
+import com.google.crypto.tink.integration.android.AndroidKeysetManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Append-only encrypted log: every commit appends one record, so a write costs O(record) instead of O(file)
+public class LogStorageBackend implements StorageBackend {
+    private static final byte OP_PUT_STRING = 1;
+    private static final byte OP_PUT_SET = 2;
+    private static final byte OP_REMOVE = 3;
+    private static final int RECORD_HEADER_BYTES = 4;
+    private static final int MAX_RECORD_BYTES = 4 * 1024 * 1024;
+    private static final long COMPACTION_MIN_BYTES = 32 * 1024;
+
+    private final File file;
+    private final Aead aead;
+    private final byte[] associatedData;
+    // Values are either String or an unmodifiable Set<String>
+    private final Map<String, Object> values = new HashMap<>();
+    private FileChannel channel;
+    // File size right after the last compaction; the log is compacted once it doubles
+    private long compactedSize;
+    // End of the last record known to be fully written
+    private long committedSize;
+    private boolean tailDirty;
+
+    public LogStorageBackend(File file, Aead aead) throws IOException {
+        this.file = file;
+        this.aead = aead;
+        this.associatedData = file.getName().getBytes(StandardCharsets.UTF_8);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        this.channel = openChannel(file);
+        replay();
+        this.compactedSize = channel.size();
+        this.committedSize = compactedSize;
+    }
+
+    private static FileChannel openChannel(File file) throws IOException {
+        return new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    // Rebuilds the in-memory map and drops a torn or corrupt tail left by an interrupted write
+    private void replay() throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        // A single read may return fewer bytes than asked for
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        long validEnd = 0;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                break;
+            }
+            byte[] ciphertext = new byte[length];
+            buffer.get(ciphertext);
+            try {
+                applyRecord(ByteBuffer.wrap(aead.decrypt(ciphertext, associatedData)));
+            } catch (GeneralSecurityException | RuntimeException e) {
+                break;
+            }
+            validEnd = buffer.position();
+        }
+        if (validEnd < size) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+    }
+
+    private void applyRecord(ByteBuffer record) {
+        while (record.hasRemaining()) {
+            byte op = record.get();
+            String key = readString(record);
+            switch (op) {
+                case OP_PUT_STRING:
+                    values.put(key, readString(record));
+                    break;
+                case OP_PUT_SET:
+                    int count = record.getInt();
+                    Set<String> set = new HashSet<>(count);
+                    for (int i = 0; i < count; i++) {
+                        set.add(readString(record));
+                    }
+                    values.put(key, Collections.unmodifiableSet(set));
+                    break;
+                case OP_REMOVE:
+                    values.remove(key);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown record op " + op);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0 || length > record.remaining()) {
+            throw new IllegalStateException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public synchronized String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Set ? (Set<String>) value : defaultValue;
+    }
+
+    @Override
+    public synchronized Set<String> getKeys() {
+        return new HashSet<>(values.keySet());
+    }
+
+    @Override
+    public StorageBackend.Editor edit() {
+        return new LogEditor();
+    }
+
+    private synchronized boolean append(List<Mutation> mutations, boolean force) {
+        if (mutations.isEmpty()) {
+            return true;
+        }
+        try {
+            // A failed earlier append may have left a torn record that replay would stop at
+            if (tailDirty || !channel.isOpen()) {
+                restoreTail();
+            }
+            writeRecord(channel, encode(mutations));
+            if (force) {
+                channel.force(false);
+            }
+            committedSize = channel.position();
+        } catch (IOException | GeneralSecurityException e) {
+            // The map still holds the last committed state, so only the partial record has to go
+            tailDirty = true;
+            try {
+                restoreTail();
+            } catch (IOException ignored) {
+                // Retried before the next append
+            }
+            return false;
+        }
+        for (Mutation mutation : mutations) {
+            if (mutation.op == OP_REMOVE) {
+                values.remove(mutation.key);
+            } else {
+                values.put(mutation.key, mutation.value);
+            }
+        }
+        try {
+            if (committedSize >= COMPACTION_MIN_BYTES && committedSize >= compactedSize * 2) {
+                compact();
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            // The record is already in the log; compaction is retried on a later commit
+        }
+        return true;
+    }
+
+    // Cuts the log back to the last committed record; an interrupted write also closes the channel
+    private void restoreTail() throws IOException {
+        if (!channel.isOpen()) {
+            channel = openChannel(file);
+        }
+        channel.truncate(committedSize);
+        channel.position(committedSize);
+        tailDirty = false;
+    }
+
+    private void writeRecord(FileChannel target, byte[] plaintext) throws IOException, GeneralSecurityException {
+        byte[] ciphertext = aead.encrypt(plaintext, associatedData);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + ciphertext.length);
+        buffer.putInt(ciphertext.length);
+        buffer.put(ciphertext);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    // Rewrites the live entries as a single record and atomically swaps it in
+    private void compact() throws IOException, GeneralSecurityException {
+        List<Mutation> snapshot = new ArrayList<>(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            byte op = entry.getValue() instanceof String ? OP_PUT_STRING : OP_PUT_SET;
+            snapshot.add(new Mutation(op, entry.getKey(), entry.getValue()));
+        }
+        File compacted = new File(file.getPath() + ".compact");
+        try (FileChannel target = openChannel(compacted)) {
+            target.truncate(0);
+            if (!snapshot.isEmpty()) {
+                writeRecord(target, encode(snapshot));
+            }
+            target.force(false);
+        }
+        channel.close();
+        if (!compacted.renameTo(file)) {
+            channel = openChannel(file);
+            channel.position(channel.size());
+            throw new IOException("Unable to replace " + file);
+        }
+        channel = openChannel(file);
+        compactedSize = channel.size();
+        committedSize = compactedSize;
+        channel.position(compactedSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] encode(List<Mutation> mutations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Mutation mutation : mutations) {
+            out.writeByte(mutation.op);
+            writeString(out, mutation.key);
+            if (mutation.op == OP_PUT_STRING) {
+                writeString(out, (String) mutation.value);
+            } else if (mutation.op == OP_PUT_SET) {
+                Set<String> set = (Set<String>) mutation.value;
+                out.writeInt(set.size());
+                for (String item : set) {
+                    writeString(out, item);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static class Mutation {
+        final byte op;
+        final String key;
+        final Object value;
+
+        Mutation(byte op, String key, Object value) {
+            this.op = op;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private class LogEditor implements StorageBackend.Editor {
+        private final List<Mutation> mutations = new ArrayList<>();
+
+        @Override
+        public StorageBackend.Editor putString(String key, String value) {
+            if (value == null) {
+                return remove(key);
+            }
+            mutations.add(new Mutation(OP_PUT_STRING, key, value));
+            return this;
+        }
+
+        @Override
+        public StorageBackend.Editor putStringSet(String key, Set<String> values) {
+            if (values == null) {
+                return remove(key);
+            }
+            mutations.add(new Mutation(OP_PUT_SET, key, Collections.unmodifiableSet(new HashSet<>(values))));
+            return this;
+        }
+
+        @Override
+        public StorageBackend.Editor remove(String key) {
+            mutations.add(new Mutation(OP_REMOVE, key, null));
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return append(mutations, true);
+        }
+
+        @Override
+        public void apply() {
+            append(mutations, false);
+        }
+    }
+
+    public static class Factory implements StorageBackend.Factory {
+        private static final String TAG = "CapacitorAuthManager";
+        private static final String KEYSET_NAME = "cap_auth_log_keyset";
+        private static final String KEYSET_PREFS_NAME = "cap_auth_log_keyset_prefs";
+        private static final String MASTER_KEY_URI = "android-keystore://" + MasterKey.DEFAULT_MASTER_KEY_ALIAS;
+
+        private final Context context;
+        private final StorageBackend.Factory fallback;
+        private Aead aead;
+        private boolean aeadResolved = false;
+
+        public Factory(Context context) {
+            this.context = context;
+            this.fallback = new PreferencesStorageBackend.Factory(context);
+        }
+
+        @Override
+        public synchronized StorageBackend open(String name) {
+            Aead recordAead = aead();
+            if (recordAead != null) {
+                try {
+                    File directory = new File(context.getNoBackupFilesDir(), "cap_auth");
+                    return new LogStorageBackend(new File(directory, name + ".log"), recordAead);
+                } catch (IOException e) {
+                    // Falling back for this one file would split the data across two stores, so the storage fails
+                    Log.e(TAG, "Unable to open auth storage log " + name, e);
+                    throw new IllegalStateException("Unable to open auth storage log " + name, e);
+                }
+            }
+            // Without a keyset every file uses encrypted shared preferences, so the data stays in one store
+            return fallback.open(name);
+        }
+
+        // Same Keystore-wrapped Tink keyset approach EncryptedSharedPreferences uses
+        private Aead aead() {
+            if (!aeadResolved) {
+                aeadResolved = true;
+                try {
+                    AeadConfig.register();
+                    aead = new AndroidKeysetManager.Builder()
+                            .withSharedPref(context, KEYSET_NAME, KEYSET_PREFS_NAME)
+                            .withKeyTemplate(KeyTemplates.get("AES256_GCM"))
+                            .withMasterKeyUri(MASTER_KEY_URI)
+                            .build()
+                            .getKeysetHandle()
+                            .getPrimitive(Aead.class);
+                } catch (GeneralSecurityException | IOException e) {
+                    Log.e(TAG, "Unable to load the auth storage log keyset; using encrypted shared preferences", e);
+                    aead = null;
+                }
+            }
+            return aead;
+        }
+    }
+}
\ No newline at end of file
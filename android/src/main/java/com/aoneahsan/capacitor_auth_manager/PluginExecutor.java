@@ -0,0 +1,91 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.os.SystemClock;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs plugin method bodies off the Capacitor bridge thread; quick local calls never queue behind slow provider calls
+final class PluginExecutor {
+    private static final int FAST_THREADS = 1;
+    private static final int SLOW_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    enum Lane { FAST, SLOW }
+
+    private final LaneExecutor fast = new LaneExecutor("CapAuthFastLane", FAST_THREADS);
+    private final LaneExecutor slow = new LaneExecutor("CapAuthSlowLane", SLOW_THREADS);
+
+    // The task resolves or rejects the call itself; a full lane rejects it with auth/too-many-requests
+    void execute(Lane lane, PluginCall call, Runnable task) {
+        (lane == Lane.FAST ? fast : slow).execute(call, task);
+    }
+
+    // { fast: { queueDepth, active, started, rejected, meanWaitMs, maxWaitMs }, slow: { ... } }
+    JSObject snapshot(boolean reset) {
+        JSObject snapshot = new JSObject();
+        snapshot.put("fast", fast.snapshot(reset));
+        snapshot.put("slow", slow.snapshot(reset));
+        return snapshot;
+    }
+
+    private static final class LaneExecutor {
+        private final ThreadPoolExecutor pool;
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+
+        LaneExecutor(String name, int threads) {
+            this.pool = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(PluginCall call, Runnable task) {
+            long enqueuedAt = SystemClock.elapsedRealtime();
+            try {
+                pool.execute(() -> {
+                    recordWait(SystemClock.elapsedRealtime() - enqueuedAt);
+                    task.run();
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                call.reject("Too many pending auth calls", AuthException.TOO_MANY_REQUESTS);
+            }
+        }
+
+        private void recordWait(long waitMs) {
+            started.incrementAndGet();
+            totalWaitMs.addAndGet(waitMs);
+            long max;
+            do {
+                max = maxWaitMs.get();
+            } while (waitMs > max && !maxWaitMs.compareAndSet(max, waitMs));
+        }
+
+        JSObject snapshot(boolean reset) {
+            long count = reset ? started.getAndSet(0) : started.get();
+            long waitMs = reset ? totalWaitMs.getAndSet(0) : totalWaitMs.get();
+            JSObject snapshot = new JSObject();
+            snapshot.put("queueDepth", pool.getQueue().size());
+            snapshot.put("active", pool.getActiveCount());
+            snapshot.put("started", count);
+            snapshot.put("rejected", reset ? rejected.getAndSet(0) : rejected.get());
+            snapshot.put("meanWaitMs", count > 0 ? waitMs / (double) count : 0);
+            snapshot.put("maxWaitMs", reset ? maxWaitMs.getAndSet(0) : maxWaitMs.get());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Set;
+
+public class PreferencesStorageBackend implements StorageBackend {
+    private final SharedPreferences sharedPreferences;
+
+    public PreferencesStorageBackend(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        return sharedPreferences.getString(key, defaultValue);
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        return sharedPreferences.getStringSet(key, defaultValue);
+    }
+
+    @Override
+    public Set<String> getKeys() {
+        // SharedPreferences has no key-only view, so this decrypts every value
+        return sharedPreferences.getAll().keySet();
+    }
+
+    @Override
+    public StorageBackend.Editor edit() {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        return new StorageBackend.Editor() {
+            @Override
+            public StorageBackend.Editor putString(String key, String value) {
+                editor.putString(key, value);
+                return this;
+            }
+
+            @Override
+            public StorageBackend.Editor putStringSet(String key, Set<String> values) {
+                editor.putStringSet(key, values);
+                return this;
+            }
+
+            @Override
+            public StorageBackend.Editor remove(String key) {
+                editor.remove(key);
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                return editor.commit();
+            }
+
+            @Override
+            public void apply() {
+                editor.apply();
+            }
+        };
+    }
+
+    public static class Factory implements StorageBackend.Factory {
+        private final Context context;
+        private MasterKey masterKey;
+        private boolean masterKeyResolved = false;
+
+        public Factory(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public synchronized StorageBackend open(String name) {
+            MasterKey key = masterKey();
+            if (key != null) {
+                try {
+                    // Use encrypted shared preferences for secure storage
+                    return new PreferencesStorageBackend(EncryptedSharedPreferences.create(
+                            context,
+                            name,
+                            key,
+                            EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                            EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
+                    ));
+                } catch (GeneralSecurityException | IOException e) {
+                    // Fall through to regular shared preferences
+                }
+            }
+            // Fallback to regular shared preferences
+            return new PreferencesStorageBackend(context.getSharedPreferences(name, Context.MODE_PRIVATE));
+        }
+
+        private MasterKey masterKey() {
+            if (!masterKeyResolved) {
+                masterKeyResolved = true;
+                try {
+                    masterKey = new MasterKey.Builder(context)
+                            .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                            .build();
+                } catch (GeneralSecurityException | IOException e) {
+                    masterKey = null;
+                }
+            }
+            return masterKey;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Stops calling a degraded provider for a while and bounds each call by a timeout learned from its recent latencies
+final class ProviderCircuitBreakers {
+    static final String CLOSED = "closed";
+    static final String OPEN = "open";
+    static final String HALF_OPEN = "half-open";
+
+    // The circuit opens once half of the last WINDOW_SIZE calls failed or were slow, given at least MIN_CALLS calls
+    private static final int WINDOW_SIZE = 20;
+    private static final int MIN_CALLS = 10;
+    private static final int FAILURE_RATE_PERCENT = 50;
+    private static final int SLOW_CALL_RATE_PERCENT = 50;
+    private static final long SLOW_CALL_MS = 5 * 1000;
+    private static final long OPEN_MS = 30 * 1000;
+    // Timeouts are the p99 of recent successful calls times TIMEOUT_HEADROOM, within the bounds below
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    private static final int TIMEOUT_HEADROOM = 3;
+    private static final long MIN_TIMEOUT_MS = 2 * 1000;
+    private static final long MAX_TIMEOUT_MS = 30 * 1000;
+
+    interface Call<T> {
+        void start(CapacitorAuthManager.AuthCallback<T> callback);
+    }
+
+    private enum Permit { REJECTED, NORMAL, PROBE }
+
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    ProviderCircuitBreakers(ScheduledExecutorService timer) {
+        this.timer = timer;
+    }
+
+    // Runs a call through the provider's circuit, failing fast while it is open and timing the call out otherwise
+    <T> void execute(String provider, CapacitorAuthManager.AuthCallback<T> callback, Call<T> call) {
+        Breaker breaker = breakerFor(provider);
+        Permit permit = breaker.acquire(SystemClock.elapsedRealtime());
+        if (permit == Permit.REJECTED) {
+            callback.onResult(CapacitorAuthManager.AuthResult.error(circuitOpen(provider)));
+            return;
+        }
+
+        long startedAt = SystemClock.elapsedRealtime();
+        long timeoutMs = breaker.timeoutMs;
+        AtomicBoolean completed = new AtomicBoolean(false);
+        ScheduledFuture<?>[] timeout = new ScheduledFuture<?>[1];
+        CapacitorAuthManager.AuthCallback<T> finish = result -> {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (timeout) {
+                if (timeout[0] != null) {
+                    timeout[0].cancel(false);
+                }
+            }
+            long now = SystemClock.elapsedRealtime();
+            breaker.record(permit, result.isSuccess() || !isProviderFailure(result.getError()), now - startedAt, now);
+            callback.onResult(result);
+        };
+        synchronized (timeout) {
+            timeout[0] = timer.schedule(() -> finish.onResult(CapacitorAuthManager.AuthResult.error(
+                    new AuthException(AuthException.TIMEOUT, "Provider " + provider + " did not respond within " + timeoutMs + " ms"))),
+                    timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        try {
+            call.start(finish);
+        } catch (RuntimeException e) {
+            finish.onResult(CapacitorAuthManager.AuthResult.error(e));
+        }
+    }
+
+    String getState(String provider) {
+        Breaker breaker = breakers.get(provider);
+        return breaker != null ? breaker.state(SystemClock.elapsedRealtime()) : CLOSED;
+    }
+
+    long getTimeoutMs(String provider) {
+        Breaker breaker = breakers.get(provider);
+        return breaker != null ? breaker.timeoutMs : MAX_TIMEOUT_MS;
+    }
+
+    // A reconfigured provider starts over with a closed circuit and no latency history
+    void reset(String provider) {
+        breakers.remove(provider);
+    }
+
+    private Breaker breakerFor(String provider) {
+        Breaker breaker = breakers.get(provider);
+        if (breaker == null) {
+            Breaker created = new Breaker();
+            breaker = breakers.putIfAbsent(provider, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    // Only errors showing the provider could not be reached or did not answer count against the circuit; an answer
+    // such as "no user signed in" or a rejected credential means the provider itself is healthy
+    static boolean isProviderFailure(Exception error) {
+        if (error instanceof AuthException) {
+            String code = ((AuthException) error).getCode();
+            if (AuthException.TIMEOUT.equals(code) || AuthException.PROVIDER_UNAVAILABLE.equals(code)) {
+                return true;
+            }
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+            if (cause instanceof IOException || cause instanceof TimeoutException || cause instanceof LinkageError) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AuthException circuitOpen(String provider) {
+        return new AuthException(AuthException.CIRCUIT_OPEN, "Provider " + provider + " is temporarily unavailable");
+    }
+
+    private static final class Breaker {
+        // Guarded by this
+        private String state = CLOSED;
+        private long openedAt;
+        private boolean probing;
+        private long probeStartedAt;
+        private final boolean[] failed = new boolean[WINDOW_SIZE];
+        private final boolean[] slow = new boolean[WINDOW_SIZE];
+        private int calls;
+        private int failures;
+        private int slowCalls;
+        private int next;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int latencyNext;
+        volatile long timeoutMs = MAX_TIMEOUT_MS;
+
+        synchronized Permit acquire(long now) {
+            if (state == OPEN) {
+                if (now - openedAt < OPEN_MS) {
+                    return Permit.REJECTED;
+                }
+                state = HALF_OPEN;
+                probing = false;
+            }
+            if (state == HALF_OPEN) {
+                // A probe that never answered would otherwise keep the circuit half-open forever
+                if (probing && now - probeStartedAt < OPEN_MS) {
+                    return Permit.REJECTED;
+                }
+                probing = true;
+                probeStartedAt = now;
+                return Permit.PROBE;
+            }
+            return Permit.NORMAL;
+        }
+
+        synchronized String state(long now) {
+            return state == OPEN && now - openedAt >= OPEN_MS ? HALF_OPEN : state;
+        }
+
+        synchronized void record(Permit permit, boolean success, long latencyMs, long now) {
+            if (success) {
+                addLatency(latencyMs);
+            }
+            if (permit == Permit.PROBE) {
+                probing = false;
+                if (success) {
+                    state = CLOSED;
+                    clearWindow();
+                } else {
+                    open(now);
+                }
+                return;
+            }
+            // Calls that started before the circuit opened no longer decide anything
+            if (state != CLOSED) {
+                return;
+            }
+
+            if (calls == WINDOW_SIZE) {
+                failures -= failed[next] ? 1 : 0;
+                slowCalls -= slow[next] ? 1 : 0;
+            } else {
+                calls++;
+            }
+            failed[next] = !success;
+            slow[next] = latencyMs >= SLOW_CALL_MS;
+            failures += failed[next] ? 1 : 0;
+            slowCalls += slow[next] ? 1 : 0;
+            next = (next + 1) % WINDOW_SIZE;
+
+            if (calls >= MIN_CALLS && (failures * 100 >= FAILURE_RATE_PERCENT * calls || slowCalls * 100 >= SLOW_CALL_RATE_PERCENT * calls)) {
+                open(now);
+            }
+        }
+
+        private void open(long now) {
+            state = OPEN;
+            openedAt = now;
+            clearWindow();
+        }
+
+        private void clearWindow() {
+            Arrays.fill(failed, false);
+            Arrays.fill(slow, false);
+            calls = 0;
+            failures = 0;
+            slowCalls = 0;
+            next = 0;
+        }
+
+        private void addLatency(long latencyMs) {
+            latencies[latencyNext] = latencyMs;
+            latencyNext = (latencyNext + 1) % LATENCY_SAMPLES;
+            if (latencyCount < LATENCY_SAMPLES) {
+                latencyCount++;
+            }
+            if (latencyCount < MIN_LATENCY_SAMPLES) {
+                return;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+            timeoutMs = Math.max(MIN_TIMEOUT_MS, Math.min(MAX_TIMEOUT_MS, p99 * TIMEOUT_HEADROOM));
+        }
+    }
+}
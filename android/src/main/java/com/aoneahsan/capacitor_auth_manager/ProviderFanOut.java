@@ -0,0 +1,164 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Runs one operation against several providers in parallel and completes its callback exactly once
+final class ProviderFanOut {
+    private static final int MAX_THREADS = 4;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    // Runs on a pool thread, so it may create the provider first
+    interface Operation<T> {
+        void run(String provider, CapacitorAuthManager.AuthCallback<T> callback);
+    }
+
+    interface AllCallback<T> {
+        // Outcomes in the order the providers were given
+        void onComplete(Map<String, CapacitorAuthManager.AuthResult<T>> results);
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+
+    ProviderFanOut(ScheduledExecutorService timer) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> daemonThread(runnable, "CapAuthProvider"));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.timer = timer;
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // First successful non-null result wins; success(null) once every provider answered without one or the timeout passed
+    <T> void firstNonNull(Collection<String> providers, Operation<T> operation, long timeoutMs,
+                          CapacitorAuthManager.AuthCallback<T> callback) {
+        List<String> entries = new ArrayList<>(providers);
+        if (entries.isEmpty()) {
+            callback.onResult(CapacitorAuthManager.AuthResult.success(null));
+            return;
+        }
+
+        AtomicBoolean completed = new AtomicBoolean(false);
+        AtomicInteger remaining = new AtomicInteger(entries.size());
+        AtomicReferenceArray<Future<?>> tasks = new AtomicReferenceArray<>(entries.size());
+        ScheduledFuture<?>[] timeout = new ScheduledFuture<?>[1];
+        CapacitorAuthManager.AuthCallback<T> finish = result -> {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            // Providers cannot abort a request, so cancelling stops queued lookups and late answers are ignored
+            for (int i = 0; i < tasks.length(); i++) {
+                Future<?> task = tasks.get(i);
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
+            synchronized (timeout) {
+                if (timeout[0] != null) {
+                    timeout[0].cancel(false);
+                }
+            }
+            callback.onResult(result);
+        };
+
+        synchronized (timeout) {
+            timeout[0] = timer.schedule(() -> finish.onResult(CapacitorAuthManager.AuthResult.success(null)), timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            String provider = entries.get(i);
+            CapacitorAuthManager.AuthCallback<T> answer = result -> {
+                if (result.isSuccess() && result.getData() != null) {
+                    finish.onResult(result);
+                } else if (remaining.decrementAndGet() == 0) {
+                    finish.onResult(CapacitorAuthManager.AuthResult.success(null));
+                }
+            };
+            tasks.set(i, executor.submit(() -> {
+                if (completed.get()) {
+                    return;
+                }
+                try {
+                    operation.run(provider, answer);
+                } catch (RuntimeException e) {
+                    answer.onResult(CapacitorAuthManager.AuthResult.error(e));
+                }
+            }));
+            if (completed.get()) {
+                tasks.get(i).cancel(false);
+                break;
+            }
+        }
+    }
+
+    // Waits for every provider, recording a timeout error for any that does not answer within perProviderTimeoutMs
+    <T> void all(Collection<String> providers, Operation<T> operation, long perProviderTimeoutMs,
+                 AllCallback<T> callback) {
+        List<String> entries = new ArrayList<>(providers);
+        AtomicReferenceArray<CapacitorAuthManager.AuthResult<T>> results = new AtomicReferenceArray<>(entries.size());
+        AtomicInteger remaining = new AtomicInteger(entries.size());
+        Runnable complete = () -> {
+            Map<String, CapacitorAuthManager.AuthResult<T>> outcomes = new LinkedHashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                outcomes.put(entries.get(i), results.get(i));
+            }
+            callback.onComplete(outcomes);
+        };
+        if (entries.isEmpty()) {
+            complete.run();
+            return;
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            int index = i;
+            String provider = entries.get(i);
+            ScheduledFuture<?>[] timeout = new ScheduledFuture<?>[1];
+            Future<?>[] task = new Future<?>[1];
+            CapacitorAuthManager.AuthCallback<T> answer = result -> {
+                if (!results.compareAndSet(index, null, result)) {
+                    return;
+                }
+                synchronized (timeout) {
+                    timeout[0].cancel(false);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    complete.run();
+                }
+            };
+            synchronized (timeout) {
+                timeout[0] = timer.schedule(() -> {
+                    answer.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Provider " + provider + " timed out")));
+                    // Interrupts a provider still blocked on the pool thread; one that answers later is ignored
+                    synchronized (timeout) {
+                        task[0].cancel(true);
+                    }
+                }, perProviderTimeoutMs, TimeUnit.MILLISECONDS);
+                task[0] = executor.submit(() -> {
+                    try {
+                        operation.run(provider, answer);
+                    } catch (RuntimeException e) {
+                        answer.onResult(CapacitorAuthManager.AuthResult.error(e));
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.os.SystemClock;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Configured providers are only created and initialized on first use, so unused SDKs are never loaded
+final class ProviderRegistry {
+    private static final int MAX_WARM_UP_THREADS = 3;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+    private static final long DEFAULT_STARTUP_TIMEOUT_MS = 10 * 1000;
+
+    private final ConcurrentHashMap<String, CapacitorAuthManager.ProviderFactory> factories = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Concurrent first uses of a provider share one create-and-initialize
+    private final SingleFlight<BaseAuthProvider> startups = new SingleFlight<>();
+    // SDK class loading during warm-up happens here instead of on the first caller's thread, several providers at once
+    private final ThreadPoolExecutor warmUpExecutor;
+    // Apart from the warm-up pool so a deadline still fires while every warm-up thread is blocked in a provider
+    private final ScheduledExecutorService deadlineTimer;
+    private volatile long startupTimeoutMs = DEFAULT_STARTUP_TIMEOUT_MS;
+
+    ProviderRegistry(ScheduledExecutorService deadlineTimer) {
+        this.warmUpExecutor = new ThreadPoolExecutor(MAX_WARM_UP_THREADS, MAX_WARM_UP_THREADS, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> daemonThread(runnable, "CapAuthWarmUp"));
+        this.warmUpExecutor.allowCoreThreadTimeOut(true);
+        this.deadlineTimer = deadlineTimer;
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Bounds how long acquire() waits for a provider to start; 0 waits indefinitely
+    void setStartupTimeoutMs(long startupTimeoutMs) {
+        this.startupTimeoutMs = Math.max(0, startupTimeoutMs);
+    }
+
+    void registerFactory(String provider, CapacitorAuthManager.ProviderFactory factory) {
+        factories.put(provider, factory);
+    }
+
+    // Replaces any existing instance; the next use creates one with the new options
+    void configure(String provider, JSObject options) {
+        entries.put(provider, new Entry(options != null ? options : new JSObject()));
+    }
+
+    boolean hasFactory(String provider) {
+        return factories.containsKey(provider);
+    }
+
+    boolean isConfigured(String provider) {
+        return entries.containsKey(provider);
+    }
+
+    Set<String> configuredProviders() {
+        return entries.keySet();
+    }
+
+    // Providers that are already created and initialized; never triggers a startup
+    Map<String, BaseAuthProvider> readyProviders() {
+        Map<String, BaseAuthProvider> ready = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            BaseAuthProvider instance = entry.getValue().instance;
+            if (instance != null) {
+                ready.put(entry.getKey(), instance);
+            }
+        }
+        return ready;
+    }
+
+    boolean isReady(String provider) {
+        Entry entry = entries.get(provider);
+        return entry != null && entry.instance != null;
+    }
+
+    // Init duration of the provider's last startup, or -1 if it has not started
+    long getInitDurationMs(String provider) {
+        Entry entry = entries.get(provider);
+        return entry != null ? entry.initDurationMs : -1;
+    }
+
+    void acquire(String provider, CapacitorAuthManager.AuthCallback<BaseAuthProvider> callback) {
+        Entry entry = entries.get(provider);
+        if (entry == null) {
+            callback.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Provider " + provider + " not configured")));
+            return;
+        }
+        BaseAuthProvider instance = entry.instance;
+        if (instance != null) {
+            callback.onResult(CapacitorAuthManager.AuthResult.success(instance));
+            return;
+        }
+        startups.execute(provider, bounded(provider, callback), done -> start(provider, entry, done));
+    }
+
+    // An SDK that never answers initialize would otherwise hold every caller forever; the startup itself keeps going
+    // and still serves later calls if it finishes
+    private CapacitorAuthManager.AuthCallback<BaseAuthProvider> bounded(String provider, CapacitorAuthManager.AuthCallback<BaseAuthProvider> callback) {
+        long timeoutMs = startupTimeoutMs;
+        if (timeoutMs <= 0) {
+            return callback;
+        }
+        AtomicBoolean completed = new AtomicBoolean(false);
+        ScheduledFuture<?> timeout = deadlineTimer.schedule(() -> {
+            if (completed.compareAndSet(false, true)) {
+                callback.onResult(CapacitorAuthManager.AuthResult.error(
+                        new AuthException(AuthException.TIMEOUT, "Provider " + provider + " did not start within " + timeoutMs + " ms")));
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        return result -> {
+            if (completed.compareAndSet(false, true)) {
+                timeout.cancel(false);
+                callback.onResult(result);
+            }
+        };
+    }
+
+    // Starts each provider off the calling thread and reports { <provider>: { ready, initMs, error? } }
+    void warmUp(Collection<String> providers, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        warmUp(providers, 0, callback);
+    }
+
+    // With a positive deadlineMs the report is delivered once it passes; providers still starting are reported with
+    // timedOut and keep starting in the background, becoming ready for later calls when they finish
+    void warmUp(Collection<String> providers, long deadlineMs, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        List<String> names = new ArrayList<>(providers);
+        JSObject report = new JSObject();
+        if (names.isEmpty()) {
+            callback.onResult(CapacitorAuthManager.AuthResult.success(report));
+            return;
+        }
+        AtomicBoolean reported = new AtomicBoolean(false);
+        AtomicInteger remaining = new AtomicInteger(names.size());
+        ScheduledFuture<?>[] deadline = new ScheduledFuture<?>[1];
+        if (deadlineMs > 0) {
+            synchronized (deadline) {
+                deadline[0] = deadlineTimer.schedule(() -> {
+                    if (!reported.compareAndSet(false, true)) {
+                        return;
+                    }
+                    synchronized (report) {
+                        for (String name : names) {
+                            if (!report.has(name)) {
+                                JSObject outcome = new JSObject();
+                                outcome.put("ready", false);
+                                outcome.put("timedOut", true);
+                                outcome.put("initMs", getInitDurationMs(name));
+                                outcome.put("error", "Provider " + name + " did not start within " + deadlineMs + " ms");
+                                report.put(name, outcome);
+                            }
+                        }
+                    }
+                    callback.onResult(CapacitorAuthManager.AuthResult.success(report));
+                }, deadlineMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        for (String name : names) {
+            warmUpExecutor.execute(() -> acquire(name, result -> {
+                if (reported.get()) {
+                    return;
+                }
+                JSObject outcome = new JSObject();
+                outcome.put("ready", result.isSuccess());
+                outcome.put("initMs", getInitDurationMs(name));
+                if (!result.isSuccess()) {
+                    outcome.put("error", result.getError().getMessage());
+                }
+                synchronized (report) {
+                    // The deadline may have filled this provider in between the check above and here
+                    if (report.has(name)) {
+                        return;
+                    }
+                    report.put(name, outcome);
+                }
+                if (remaining.decrementAndGet() == 0 && reported.compareAndSet(false, true)) {
+                    synchronized (deadline) {
+                        if (deadline[0] != null) {
+                            deadline[0].cancel(false);
+                        }
+                    }
+                    callback.onResult(CapacitorAuthManager.AuthResult.success(report));
+                }
+            }));
+        }
+    }
+
+    private void start(String provider, Entry entry, CapacitorAuthManager.AuthCallback<BaseAuthProvider> done) {
+        CapacitorAuthManager.ProviderFactory factory = factories.get(provider);
+        if (factory == null) {
+            done.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Provider " + provider + " is not available on Android")));
+            return;
+        }
+        long startedAt = SystemClock.elapsedRealtime();
+        try {
+            BaseAuthProvider instance = factory.create(entry.options);
+            instance.initialize(result -> {
+                entry.initDurationMs = SystemClock.elapsedRealtime() - startedAt;
+                if (!result.isSuccess()) {
+                    // The entry stays uncreated so the next use retries
+                    done.onResult(CapacitorAuthManager.AuthResult.error(result.getError()));
+                    return;
+                }
+                // A configure() during startup replaced the entry; this instance still serves the callers already waiting
+                entry.instance = instance;
+                done.onResult(CapacitorAuthManager.AuthResult.success(instance));
+            });
+        } catch (RuntimeException e) {
+            entry.initDurationMs = SystemClock.elapsedRealtime() - startedAt;
+            done.onResult(CapacitorAuthManager.AuthResult.error(e));
+        } catch (LinkageError e) {
+            // A provider SDK missing from the app or failing its static initializer surfaces here on first use
+            entry.initDurationMs = SystemClock.elapsedRealtime() - startedAt;
+            AuthException error = new AuthException(AuthException.PROVIDER_UNAVAILABLE, "Provider " + provider + " could not be loaded: " + e);
+            error.initCause(e);
+            done.onResult(CapacitorAuthManager.AuthResult.error(error));
+        }
+    }
+
+    private static final class Entry {
+        final JSObject options;
+        volatile BaseAuthProvider instance;
+        volatile long initDurationMs = -1;
+
+        Entry(JSObject options) {
+            this.options = options;
+        }
+    }
+}
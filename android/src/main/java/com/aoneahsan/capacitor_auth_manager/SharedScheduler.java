@@ -0,0 +1,28 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// One timer pool for every timeout, deadline and background refresh of a manager; its threads exit when idle,
+// unlike a permanent single-thread scheduler per component. Tasks must hand blocking work to another executor
+final class SharedScheduler {
+    private static final int THREADS = 2;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private SharedScheduler() {
+    }
+
+    static ScheduledExecutorService create() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "CapAuthScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setKeepAliveTime(THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        // Timeouts are cancelled far more often than they fire; without this they stay queued until their delay passes
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
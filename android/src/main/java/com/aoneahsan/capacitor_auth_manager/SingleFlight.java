@@ -0,0 +1,90 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs at most one call per key; callers arriving while it is in flight receive the same result
+final class SingleFlight<T> {
+    interface Call<T> {
+        void start(CapacitorAuthManager.AuthCallback<T> callback);
+    }
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    void execute(String key, CapacitorAuthManager.AuthCallback<T> callback, Call<T> call) {
+        while (true) {
+            Flight flight = new Flight(key, callback);
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                startedCount.incrementAndGet();
+                try {
+                    call.start(flight::complete);
+                } catch (RuntimeException e) {
+                    flight.complete(CapacitorAuthManager.AuthResult.error(e));
+                } catch (LinkageError e) {
+                    // Otherwise the flight would stay mapped and every later caller would wait on it forever
+                    Exception error = new Exception(e.toString());
+                    error.initCause(e);
+                    flight.complete(CapacitorAuthManager.AuthResult.error(error));
+                }
+                return;
+            }
+            if (existing.attach(callback)) {
+                coalescedCount.incrementAndGet();
+                return;
+            }
+            // The flight completed between lookup and attach; it is already unmapped, so retry
+        }
+    }
+
+    long getStartedCount() {
+        return startedCount.get();
+    }
+
+    // Callers that attached to an in-flight call instead of starting their own
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private final class Flight {
+        private final String key;
+        private List<CapacitorAuthManager.AuthCallback<T>> waiters = new ArrayList<>(2);
+
+        Flight(String key, CapacitorAuthManager.AuthCallback<T> first) {
+            this.key = key;
+            waiters.add(first);
+        }
+
+        synchronized boolean attach(CapacitorAuthManager.AuthCallback<T> callback) {
+            if (waiters == null) {
+                return false;
+            }
+            waiters.add(callback);
+            return true;
+        }
+
+        void complete(CapacitorAuthManager.AuthResult<T> result) {
+            inFlight.remove(key, this);
+            List<CapacitorAuthManager.AuthCallback<T>> callbacks;
+            synchronized (this) {
+                // Providers that report twice are ignored after the first result
+                if (waiters == null) {
+                    return;
+                }
+                callbacks = waiters;
+                waiters = null;
+            }
+            for (CapacitorAuthManager.AuthCallback<T> callback : callbacks) {
+                callback.onResult(result);
+            }
+        }
+    }
+}
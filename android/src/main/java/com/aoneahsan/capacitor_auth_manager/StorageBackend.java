@@ -0,0 +1,24 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.Set;
+
+public interface StorageBackend {
+    String getString(String key, String defaultValue);
+    Set<String> getStringSet(String key, Set<String> defaultValue);
+    Set<String> getKeys();
+    Editor edit();
+
+    // Mutations are staged and become visible together on commit() or apply()
+    interface Editor {
+        Editor putString(String key, String value);
+        Editor putStringSet(String key, Set<String> values);
+        Editor remove(String key);
+        boolean commit();
+        void apply();
+    }
+
+    // Called off the main thread; implementations fall back rather than throw
+    interface Factory {
+        StorageBackend open(String name);
+    }
+}
\ No newline at end of file
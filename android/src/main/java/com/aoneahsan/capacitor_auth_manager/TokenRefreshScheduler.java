@@ -0,0 +1,173 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Refreshes each tracked provider's token ahead of its expiry so foreground callers hit a warm cache
+final class TokenRefreshScheduler {
+    private static final long MIN_BACKOFF_MS = 5 * 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final long MAX_JITTER_MS = 30 * 1000;
+
+    interface Refresher {
+        void refresh(String provider, CapacitorAuthManager.AuthCallback<JSObject> callback);
+    }
+
+    private final Refresher refresher;
+    private final ScheduledExecutorService executor;
+    // Guarded by this
+    private final Map<String, Target> targets = new HashMap<>();
+    private boolean paused = false;
+    private volatile long leadMs;
+    private volatile CapacitorAuthManager.TokenRefreshListener listener;
+
+    // Refreshes start on the executor's thread; providers answer getIdToken through a callback, so it is not held
+    TokenRefreshScheduler(Refresher refresher, long leadMs, ScheduledExecutorService executor) {
+        this.refresher = refresher;
+        this.leadMs = leadMs;
+        this.executor = executor;
+    }
+
+    void setLeadMs(long leadMs) {
+        this.leadMs = Math.max(0, leadMs);
+    }
+
+    void setListener(CapacitorAuthManager.TokenRefreshListener listener) {
+        this.listener = listener;
+    }
+
+    // Called whenever a fresh token is obtained, by this scheduler or by a foreground caller
+    synchronized void track(String provider, long expiresAt) {
+        Target target = targets.get(provider);
+        if (target == null) {
+            target = new Target();
+            targets.put(provider, target);
+        }
+        target.expiresAt = expiresAt;
+        target.failures = 0;
+        scheduleLocked(provider, target, refreshDelay(expiresAt));
+    }
+
+    synchronized boolean isTracked(String provider) {
+        return targets.containsKey(provider);
+    }
+
+    synchronized void untrack(String provider) {
+        Target target = targets.remove(provider);
+        if (target != null) {
+            cancelLocked(target);
+        }
+    }
+
+    synchronized void clear() {
+        for (Target target : targets.values()) {
+            cancelLocked(target);
+        }
+        targets.clear();
+    }
+
+    // Backgrounded apps keep their targets but make no network calls until resumed
+    synchronized void pause() {
+        paused = true;
+        for (Target target : targets.values()) {
+            cancelLocked(target);
+        }
+    }
+
+    synchronized void resume() {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            Target target = entry.getValue();
+            scheduleLocked(entry.getKey(), target, target.failures > 0 ? 0 : refreshDelay(target.expiresAt));
+        }
+    }
+
+    // Jitter only ever moves the refresh earlier, so it still lands before the cache stops serving the token;
+    // a token that is already inside the lead window waits MIN_BACKOFF_MS so refreshes never run back to back
+    private long refreshDelay(long expiresAt) {
+        long lead = leadMs;
+        long jitter = ThreadLocalRandom.current().nextLong(Math.min(MAX_JITTER_MS, lead / 10) + 1);
+        return Math.max(MIN_BACKOFF_MS, expiresAt - lead - jitter - System.currentTimeMillis());
+    }
+
+    private static long backoffDelay(int failures) {
+        long backoff = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(failures - 1, 16));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private void scheduleLocked(String provider, Target target, long delayMs) {
+        cancelLocked(target);
+        if (!paused) {
+            target.future = executor.schedule(() -> run(provider, target), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void cancelLocked(Target target) {
+        if (target.future != null) {
+            target.future.cancel(false);
+            target.future = null;
+        }
+    }
+
+    private void run(String provider, Target target) {
+        synchronized (this) {
+            if (paused || targets.get(provider) != target) {
+                return;
+            }
+            target.future = null;
+            target.refreshedFrom = target.expiresAt;
+        }
+        try {
+            refresher.refresh(provider, result -> onRefreshResult(provider, target, result));
+        } catch (RuntimeException e) {
+            onRefreshResult(provider, target, CapacitorAuthManager.AuthResult.error(e));
+        }
+    }
+
+    private void onRefreshResult(String provider, Target target, CapacitorAuthManager.AuthResult<JSObject> result) {
+        synchronized (this) {
+            if (targets.get(provider) == target) {
+                if (result.isSuccess()) {
+                    long expiresAt = IdTokenCache.parseExpiresAt(result.getData());
+                    if (expiresAt <= target.refreshedFrom) {
+                        // No expiry, or the provider handed back a token that lasts no longer; refreshing again would only loop
+                        cancelLocked(target);
+                        targets.remove(provider);
+                    } else if (target.future == null) {
+                        // Normally re-tracked through the token cache, which skips results invalidated meanwhile
+                        target.expiresAt = expiresAt;
+                        target.failures = 0;
+                        scheduleLocked(provider, target, refreshDelay(expiresAt));
+                    }
+                } else if (System.currentTimeMillis() >= target.expiresAt) {
+                    // Past expiry a foreground call has to refresh anyway, so stop retrying in the background
+                    targets.remove(provider);
+                } else {
+                    target.failures++;
+                    scheduleLocked(provider, target, backoffDelay(target.failures));
+                }
+            }
+        }
+        CapacitorAuthManager.TokenRefreshListener current = listener;
+        if (current != null) {
+            current.onTokenRefresh(provider, result);
+        }
+    }
+
+    private static final class Target {
+        long expiresAt;
+        // Expiry of the token being replaced by the refresh in flight
+        long refreshedFrom;
+        int failures;
+        ScheduledFuture<?> future;
+    }
+}
@@ -0,0 +1,47 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class AuthLoggerAllocationTest {
+    private static final int CALLS = 10000;
+
+    @Test
+    public void disabledCallsAllocateNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        AuthLogger logger = new AuthLogger("test");
+        String provider = "google";
+        long threadId = Thread.currentThread().getId();
+
+        // Latencies above the Long cache range, so any boxing shows up as allocation
+        logDisabled(logger, provider, CALLS);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        logDisabled(logger, provider, CALLS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes over " + CALLS + " calls", allocated < CALLS);
+    }
+
+    private static void logDisabled(AuthLogger logger, String provider, int calls) {
+        for (int i = 0; i < calls; i++) {
+            long latencyMs = 1000 + i;
+            logger.debug("Provider started");
+            logger.debug("Provider %s started", provider);
+            logger.debug("Storage initialized in %d ms", latencyMs);
+            logger.debug("Provider %s started in %d ms", provider, latencyMs);
+            logger.info("Provider %s started in %d ms", provider, latencyMs);
+            logger.warn("Provider %s started in %d ms", provider, latencyMs);
+            logger.debug(() -> "Provider started");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Logging call sites with logging off, on and formatting on the caller, and on with the async consumer
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthLoggerBenchmark {
+    @Param({"disabled", "enabled", "async"})
+    public String mode;
+
+    private AuthLogger logger;
+    // Outside the Long cache, so boxing it would show up as allocation
+    private long latencyMs = 1234;
+    private String provider = "google";
+
+    @Setup
+    public void setUp() {
+        logger = new AuthLogger("Benchmark");
+        logger.setLogLevel("debug");
+        logger.setEnabled(!"disabled".equals(mode));
+        logger.setAsync("async".equals(mode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        logger.setAsync(false);
+    }
+
+    @Benchmark
+    public void message() {
+        logger.debug("Token refreshed");
+    }
+
+    @Benchmark
+    public void stringArgument() {
+        logger.debug("Signing in with %s", provider);
+    }
+
+    @Benchmark
+    public void longArgument() {
+        logger.debug("Auth storage initialized in %d ms", latencyMs);
+    }
+
+    @Benchmark
+    public void twoArguments() {
+        logger.debug("Provider %s started in %d ms", provider, latencyMs);
+    }
+}
@@ -0,0 +1,49 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AuthManagerInitializeTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    @Test
+    public void initializeCalledDuringARequiredStartupGetsItsFailure() throws Exception {
+        CountDownLatch startupReleased = new CountDownLatch(1);
+        CapacitorAuthManager manager = new CapacitorAuthManager(null, null, new InMemoryStorageBackend.Factory());
+        manager.registerProviderFactory("google", options -> {
+            try {
+                startupReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("SDK misconfigured");
+        });
+        JSObject options = new JSObject("{\"providers\":[{\"provider\":\"google\",\"startup\":\"required\"}]}");
+
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicReference<CapacitorAuthManager.AuthResult<Void>> first = new AtomicReference<>();
+        AtomicReference<CapacitorAuthManager.AuthResult<Void>> second = new AtomicReference<>();
+        manager.initialize(options, result -> {
+            first.set(result);
+            done.countDown();
+        });
+        manager.initialize(options, result -> {
+            second.set(result);
+            done.countDown();
+        });
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+
+        startupReleased.countDown();
+        assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(first.get().isSuccess());
+        assertFalse(second.get().isSuccess());
+    }
+}
@@ -0,0 +1,215 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Many threads signing in, signing out and adding and removing listeners at once, the way bridge calls and SDK callbacks race
+public class AuthManagerStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 400;
+    private static final long TIMEOUT_MS = 30000;
+
+    private CapacitorAuthManager manager;
+    private final FakeAuthProvider google = new FakeAuthProvider("google");
+    private final FakeAuthProvider apple = new FakeAuthProvider("apple");
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new CapacitorAuthManager(null, null, new InMemoryStorageBackend.Factory());
+        manager.registerProviderFactory("google", options -> google);
+        manager.registerProviderFactory("apple", options -> apple);
+        AtomicReference<CapacitorAuthManager.AuthResult<Void>> initialized = AuthManagerStressTest.<Void>await(callback -> {
+            try {
+                manager.initialize(new JSObject("{\"providers\":[{\"provider\":\"google\"},{\"provider\":\"apple\"}]}"), callback);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(initialized.get().isSuccess());
+    }
+
+    @After
+    public void tearDown() {
+        manager.removeAllListeners();
+    }
+
+    private interface Call<T> {
+        void start(CapacitorAuthManager.AuthCallback<T> callback);
+    }
+
+    private static <T> AtomicReference<CapacitorAuthManager.AuthResult<T>> await(Call<T> call) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<CapacitorAuthManager.AuthResult<T>> result = new AtomicReference<>();
+        call.start(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        assertTrue("callback was not called", done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return result;
+    }
+
+    // Records delivered uids, with null for signed out
+    private static final class RecordingListener implements CapacitorAuthManager.AuthStateListener {
+        final List<String> uids = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onAuthStateChange(JSObject user) {
+            uids.add(user != null ? user.optString("uid") : null);
+        }
+
+        String last() {
+            synchronized (uids) {
+                return uids.isEmpty() ? "<none>" : uids.get(uids.size() - 1);
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSignInSignOutAndListenersSettleConsistently() throws InterruptedException {
+        List<RecordingListener> longLived = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RecordingListener listener = new RecordingListener();
+            longLived.add(listener);
+            manager.addAuthStateListener(listener);
+        }
+
+        int totalOperations = THREADS * OPERATIONS_PER_THREAD;
+        CountDownLatch callbacks = new CountDownLatch(totalOperations);
+        AtomicInteger duplicateCallbacks = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        AtomicInteger calls = new AtomicInteger();
+                        CapacitorAuthManager.AuthCallback<Object> once = result -> {
+                            if (calls.incrementAndGet() > 1) {
+                                duplicateCallbacks.incrementAndGet();
+                                return;
+                            }
+                            callbacks.countDown();
+                        };
+                        String provider = (worker + i) % 2 == 0 ? "google" : "apple";
+                        switch ((worker + i) % 5) {
+                            case 0:
+                                manager.signIn(provider, new JSObject(), new JSObject(), result -> once.onResult(null));
+                                break;
+                            case 1:
+                                manager.signOut(new JSObject().put("provider", provider), result -> once.onResult(null));
+                                break;
+                            case 2: {
+                                String id = manager.addAuthStateListener(user -> { });
+                                manager.removeAuthStateListener(id);
+                                once.onResult(null);
+                                break;
+                            }
+                            case 3:
+                                manager.getCurrentUser(result -> once.onResult(null));
+                                break;
+                            default:
+                                manager.signOut(null, result -> once.onResult(null));
+                                break;
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "StressWorker-" + t);
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join(TIMEOUT_MS);
+        }
+
+        assertTrue("worker failed: " + failures.peek(), failures.isEmpty());
+        assertTrue("only " + (totalOperations - callbacks.getCount()) + " of " + totalOperations + " callbacks arrived",
+                callbacks.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(0, duplicateCallbacks.get());
+
+        // Whatever interleaving happened, a final sign-out of everything leaves no one signed in
+        assertTrue(AuthManagerStressTest.<JSObject>await(callback -> manager.signOut(null, callback)).get().isSuccess());
+        CapacitorAuthManager.AuthResult<JSObject> current = AuthManagerStressTest.<JSObject>await(manager::getCurrentUser).get();
+        assertTrue(current.isSuccess());
+        assertNull(current.getData());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        for (RecordingListener listener : longLived) {
+            while (listener.last() != null) {
+                assertTrue("listener still sees " + listener.last(), System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+            synchronized (listener.uids) {
+                for (int i = 1; i < listener.uids.size(); i++) {
+                    String previous = listener.uids.get(i - 1);
+                    String next = listener.uids.get(i);
+                    assertTrue("same state delivered twice in a row: " + next, previous == null ? next != null : !previous.equals(next));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void listenersAddedDuringSignInAlwaysEndOnTheFinalState() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<RecordingListener> listeners = new ConcurrentLinkedQueue<>();
+        Thread signIns = new Thread(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    manager.signIn("google", new JSObject(), new JSObject(), result -> { });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread subscribers = new Thread(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    RecordingListener listener = new RecordingListener();
+                    listeners.add(listener);
+                    manager.addAuthStateListener(listener);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        signIns.start();
+        subscribers.start();
+        start.countDown();
+        signIns.join(TIMEOUT_MS);
+        subscribers.join(TIMEOUT_MS);
+
+        String finalUid = "google-user-" + google.getSignInCount();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        for (RecordingListener listener : listeners) {
+            while (!finalUid.equals(listener.last())) {
+                assertTrue("listener ended on " + listener.last() + " instead of " + finalUid, System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of the result objects every provider callback creates; voidSuccess should report no allocation
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthResultBenchmark {
+    private final JSObject user = new JSObject().put("uid", "user-1").put("email", "user@example.com");
+    private final Exception error = new Exception("No user signed in");
+
+    @Benchmark
+    public CapacitorAuthManager.AuthResult<Void> voidSuccess() {
+        return CapacitorAuthManager.AuthResult.success(null);
+    }
+
+    @Benchmark
+    public CapacitorAuthManager.AuthResult<JSObject> dataSuccess() {
+        return CapacitorAuthManager.AuthResult.success(user);
+    }
+
+    @Benchmark
+    public CapacitorAuthManager.AuthResult<JSObject> errorResult() {
+        return CapacitorAuthManager.AuthResult.error(error);
+    }
+}
@@ -0,0 +1,67 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Listener dispatch: the publishing side alone, and a publish followed by waiting for the listener to see it
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthStateDispatchBenchmark {
+    private static final int LISTENERS = 4;
+
+    private AuthStateDispatcher dispatcher;
+    private final AtomicLong delivered = new AtomicLong();
+    // Alternating users so deliveries are never suppressed as duplicates
+    private final JSObject[] users = {
+            new JSObject().put("uid", "user-1"),
+            new JSObject().put("uid", "user-2")
+    };
+    private int next;
+
+    @Setup
+    public void setUp() {
+        dispatcher = new AuthStateDispatcher();
+        for (int i = 0; i < LISTENERS; i++) {
+            dispatcher.subscribe("listener-" + i, user -> delivered.incrementAndGet());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.unsubscribeAll();
+    }
+
+    @Benchmark
+    public void publish() {
+        dispatcher.publish(users[next++ & 1]);
+    }
+
+    @Benchmark
+    public long publishAndAwaitDelivery() {
+        long target = delivered.get() + LISTENERS;
+        dispatcher.publish(users[next++ & 1]);
+        long seen;
+        while ((seen = delivered.get()) < target) {
+            Thread.onSpinWait();
+        }
+        return seen;
+    }
+}
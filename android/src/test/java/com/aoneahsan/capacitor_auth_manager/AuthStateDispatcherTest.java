@@ -0,0 +1,243 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AuthStateDispatcherTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private final AuthStateDispatcher dispatcher = new AuthStateDispatcher();
+
+    @After
+    public void tearDown() {
+        dispatcher.unsubscribeAll();
+    }
+
+    // Records delivered uids, with null for signed out
+    private static final class RecordingListener implements CapacitorAuthManager.AuthStateListener {
+        final List<String> uids = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onAuthStateChange(JSObject user) {
+            uids.add(user != null ? user.optString("uid") : null);
+        }
+
+        int count() {
+            return uids.size();
+        }
+
+        String last() {
+            synchronized (uids) {
+                return uids.isEmpty() ? "<none>" : uids.get(uids.size() - 1);
+            }
+        }
+    }
+
+    // Waits until every published state was delivered, coalesced or suppressed and the given listeners returned
+    private void awaitIdle(RecordingListener... listeners) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (true) {
+            long returned = 0;
+            for (RecordingListener listener : listeners) {
+                returned += listener.count();
+            }
+            long settled = dispatcher.getDeliveredCount() + dispatcher.getCoalescedCount() + dispatcher.getSuppressedCount();
+            if (settled >= dispatcher.getPublishedCount() && returned >= dispatcher.getDeliveredCount()) {
+                return;
+            }
+            assertTrue("dispatcher did not go idle", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitLast(RecordingListener listener, String uid) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!uid.equals(listener.last())) {
+            assertTrue("last delivered " + listener.last() + ", expected " + uid, System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void deliversUsersAndSignOutOffThePublishingThread() throws InterruptedException {
+        CountDownLatch signedIn = new CountDownLatch(1);
+        CountDownLatch signedOut = new CountDownLatch(2);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        List<JSObject> users = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.subscribe("listener", user -> {
+            threads.add(Thread.currentThread());
+            users.add(user);
+            signedIn.countDown();
+            signedOut.countDown();
+        });
+
+        dispatcher.publish(FakeAuthProvider.user("user-1"));
+        assertTrue(signedIn.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        dispatcher.publish(null);
+        assertTrue(signedOut.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("user-1", users.get(0).optString("uid"));
+        assertNull(users.get(1));
+        for (Thread thread : threads) {
+            assertTrue(thread != Thread.currentThread());
+        }
+    }
+
+    @Test
+    public void sameUserTwiceIsDeliveredOnce() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("listener", listener);
+        dispatcher.publish(FakeAuthProvider.user("user-1"));
+        awaitIdle(listener);
+        dispatcher.publish(FakeAuthProvider.user("user-1"));
+        awaitIdle(listener);
+        dispatcher.publish(null);
+        awaitIdle(listener);
+        dispatcher.publish(null);
+        awaitIdle(listener);
+        assertEquals(2, listener.uids.size());
+        assertEquals(2, dispatcher.getSuppressedCount());
+    }
+
+    @Test
+    public void publishToOnlyReachesThatListener() throws InterruptedException {
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        dispatcher.subscribe("first", first);
+        dispatcher.subscribe("second", second);
+        dispatcher.publishTo("second", FakeAuthProvider.user("user-1"), dispatcher.currentSequence());
+        awaitIdle(first, second);
+        assertEquals(0, first.uids.size());
+        assertEquals("user-1", second.last());
+    }
+
+    @Test
+    public void initialStateLookedUpBeforeAPublishNeverOverwritesIt() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("listener", listener);
+        long observedAt = dispatcher.currentSequence();
+        // A sign-in is published while the initial state is still being looked up
+        dispatcher.publish(FakeAuthProvider.user("user-2"));
+        awaitIdle(listener);
+        dispatcher.publishTo("listener", FakeAuthProvider.user("user-1"), observedAt);
+        awaitIdle(listener);
+        assertEquals(1, listener.uids.size());
+        assertEquals("user-2", listener.last());
+
+        // Also while the newer state is still waiting to be delivered
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener();
+        dispatcher.subscribe("slow", user -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slow.onAuthStateChange(user);
+        });
+        long slowObservedAt = dispatcher.currentSequence();
+        dispatcher.publishTo("slow", FakeAuthProvider.user("user-2"), slowObservedAt);
+        dispatcher.publish(FakeAuthProvider.user("user-3"));
+        dispatcher.publishTo("slow", FakeAuthProvider.user("user-2"), slowObservedAt);
+        release.countDown();
+        awaitLast(slow, "user-3");
+        Thread.sleep(50);
+        assertEquals("user-3", slow.last());
+    }
+
+    @Test
+    public void unsubscribedListenerHearsNothingMore() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("listener", listener);
+        dispatcher.publish(FakeAuthProvider.user("user-1"));
+        awaitIdle(listener);
+        dispatcher.unsubscribe("listener");
+        dispatcher.publish(FakeAuthProvider.user("user-2"));
+        awaitIdle(listener);
+        assertEquals(1, listener.uids.size());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopTheOthers() throws InterruptedException {
+        RecordingListener healthy = new RecordingListener();
+        dispatcher.subscribe("failing", user -> {
+            throw new IllegalStateException("listener bug");
+        });
+        dispatcher.subscribe("healthy", healthy);
+        dispatcher.publish(FakeAuthProvider.user("user-1"));
+        dispatcher.publish(FakeAuthProvider.user("user-2"));
+        awaitLast(healthy, "user-2");
+    }
+
+    @Test
+    public void slowListenerOnlySeesTheLatestStateInOrder() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener recorder = new RecordingListener();
+        dispatcher.subscribe("slow", user -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recorder.onAuthStateChange(user);
+        });
+        for (int i = 1; i <= 100; i++) {
+            dispatcher.publish(FakeAuthProvider.user("user-" + i));
+        }
+        release.countDown();
+        awaitIdle(recorder);
+        assertEquals("user-100", recorder.last());
+        assertTrue(recorder.uids.size() < 100);
+        assertTrue(dispatcher.getCoalescedCount() > 0);
+        int previous = 0;
+        for (String uid : recorder.uids) {
+            int sequence = Integer.parseInt(uid.substring("user-".length()));
+            assertTrue("delivered out of order: " + recorder.uids, sequence > previous);
+            previous = sequence;
+        }
+    }
+
+    @Test
+    public void concurrentPublishersNeverStrandTheLastState() throws InterruptedException {
+        int listeners = 4;
+        List<RecordingListener> recorders = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            RecordingListener recorder = new RecordingListener();
+            recorders.add(recorder);
+            dispatcher.subscribe("listener-" + i, recorder);
+        }
+        int publishers = 4;
+        CountDownLatch finished = new CountDownLatch(publishers);
+        for (int p = 0; p < publishers; p++) {
+            int publisher = p;
+            new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    dispatcher.publish(FakeAuthProvider.user("publisher-" + publisher + "-" + i));
+                }
+                finished.countDown();
+            }).start();
+        }
+        assertTrue(finished.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        dispatcher.publish(FakeAuthProvider.user("final"));
+        awaitIdle(recorders.toArray(new RecordingListener[0]));
+        for (RecordingListener recorder : recorders) {
+            assertEquals("final", recorder.last());
+            synchronized (recorder.uids) {
+                for (int i = 1; i < recorder.uids.size(); i++) {
+                    assertTrue("duplicate delivery", !recorder.uids.get(i).equals(recorder.uids.get(i - 1)));
+                }
+            }
+        }
+    }
+}
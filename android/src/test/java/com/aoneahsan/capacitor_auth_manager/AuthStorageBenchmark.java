@@ -0,0 +1,61 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// AuthStorage reads and writes over an in-memory backend, so only AuthStorage's own overhead is measured
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthStorageBenchmark {
+    private static final String USER_JSON = "{\"uid\":\"1234567890\",\"email\":\"user@example.com\",\"displayName\":\"Example User\"}";
+
+    private AuthStorage storage;
+
+    @Setup
+    public void setUp() {
+        storage = new AuthStorage(new InMemoryStorageBackend.Factory());
+        storage.set("user", USER_JSON);
+        storage.setForProvider("google", "access_token", "token-value");
+        storage.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        storage.flush();
+    }
+
+    @Benchmark
+    public String get() {
+        return storage.get("user");
+    }
+
+    @Benchmark
+    public String getForProvider() {
+        return storage.getForProvider("google", "access_token");
+    }
+
+    @Benchmark
+    public String getMissing() {
+        return storage.get("missing");
+    }
+
+    @Benchmark
+    public void set() {
+        storage.set("user", USER_JSON);
+    }
+}
@@ -0,0 +1,57 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// A cached AuthStorage.get() against the read it replaces: decrypting the value from an encrypted backend every time
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthStorageReadBenchmark {
+    private static final String USER_JSON = "{\"uid\":\"1234567890\",\"email\":\"user@example.com\",\"displayName\":\"Example User\"}";
+    // AuthStorage's on-disk name for the "user" key
+    private static final String BACKEND_KEY = "cap_auth_user";
+
+    private AuthStorage storage;
+    private StorageBackend backend;
+
+    @Setup
+    public void setUp() {
+        backend = new EncryptingStorageBackend(new InMemoryStorageBackend());
+        storage = new AuthStorage(name -> backend);
+        storage.set("user", USER_JSON);
+        storage.flush();
+        if (!USER_JSON.equals(backend.getString(BACKEND_KEY, null))) {
+            throw new IllegalStateException("AuthStorage no longer stores \"user\" as " + BACKEND_KEY);
+        }
+    }
+
+    @Benchmark
+    public String cachedGet() {
+        return storage.get("user");
+    }
+
+    @Benchmark
+    public String cacheMissGet() {
+        storage.clearCache();
+        return storage.get("user");
+    }
+
+    @Benchmark
+    public String backendRead() {
+        return backend.getString(BACKEND_KEY, null);
+    }
+}
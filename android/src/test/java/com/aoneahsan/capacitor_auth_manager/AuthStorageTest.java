@@ -0,0 +1,197 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AuthStorageTest {
+    @Test
+    public void boundedFlushCommitsOnTheStorageThread() {
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        Thread[] committedOn = new Thread[1];
+        AuthStorage storage = new AuthStorage(name -> new ForwardingBackend(backend) {
+            @Override
+            void beforeCommit() {
+                committedOn[0] = Thread.currentThread();
+            }
+        });
+        storage.set("user", "value");
+        assertTrue(storage.flush(5000));
+        assertEquals("value", backend.getString("cap_auth_user", null));
+        assertTrue(committedOn[0] != Thread.currentThread());
+    }
+
+    @Test
+    public void asyncFlushReturnsBeforeASlowDiskCommits() throws Exception {
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        CountDownLatch diskReady = new CountDownLatch(1);
+        AuthStorage storage = new AuthStorage(name -> new ForwardingBackend(backend) {
+            @Override
+            void beforeCommit() {
+                try {
+                    diskReady.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        storage.set("user", "value");
+
+        Future<Boolean> commit = storage.flushAsync();
+        assertFalse(commit.isDone());
+
+        diskReady.countDown();
+        assertTrue(commit.get(5, TimeUnit.SECONDS));
+        assertEquals("value", backend.getString("cap_auth_user", null));
+    }
+
+    @Test
+    public void boundedFlushGivesUpOnASlowDiskButTheWriteStillLands() throws InterruptedException {
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        CountDownLatch diskReady = new CountDownLatch(1);
+        AuthStorage storage = new AuthStorage(name -> new ForwardingBackend(backend) {
+            @Override
+            void beforeCommit() {
+                try {
+                    diskReady.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        storage.set("user", "value");
+
+        long startedAt = System.nanoTime();
+        assertFalse(storage.flush(100));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertTrue("waited " + waitedMs + " ms", waitedMs < 2000);
+        assertEquals("value", storage.get("user"));
+
+        diskReady.countDown();
+        assertTrue(storage.flush(5000));
+        assertEquals("value", backend.getString("cap_auth_user", null));
+    }
+
+    @Test
+    public void sessionValuesSpillToDiskOnlyWhenAsked() {
+        InMemoryStorageBackend spilledBackend = new InMemoryStorageBackend();
+        AuthStorage spilled = new AuthStorage(name -> spilledBackend);
+        spilled.setPersistence("session");
+        spilled.set("user", "kiosk-user");
+        assertTrue(spilled.flush(5000));
+        assertNull(spilledBackend.getString("cap_auth_user", null));
+        spilled.setPersistence("local", true);
+        assertTrue(spilled.flush(5000));
+        assertEquals("kiosk-user", spilledBackend.getString("cap_auth_user", null));
+
+        InMemoryStorageBackend droppedBackend = new InMemoryStorageBackend();
+        AuthStorage dropped = new AuthStorage(name -> droppedBackend);
+        dropped.setPersistence("session");
+        dropped.set("user", "kiosk-user");
+        dropped.setPersistence("local", false);
+        assertTrue(dropped.flush(5000));
+        assertNull(dropped.get("user"));
+        assertNull(droppedBackend.getString("cap_auth_user", null));
+    }
+
+    // Passes everything through to another backend, calling beforeCommit() ahead of each commit
+    private static class ForwardingBackend implements StorageBackend {
+        private final StorageBackend delegate;
+
+        ForwardingBackend(StorageBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        void beforeCommit() {
+        }
+
+        @Override
+        public String getString(String key, String defaultValue) {
+            return delegate.getString(key, defaultValue);
+        }
+
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defaultValue) {
+            return delegate.getStringSet(key, defaultValue);
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return delegate.getKeys();
+        }
+
+        @Override
+        public Editor edit() {
+            Editor editor = delegate.edit();
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    editor.putString(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putStringSet(String key, Set<String> values) {
+                    editor.putStringSet(key, values);
+                    return this;
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    editor.remove(key);
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    beforeCommit();
+                    return editor.commit();
+                }
+
+                @Override
+                public void apply() {
+                    beforeCommit();
+                    editor.apply();
+                }
+            };
+        }
+    }
+
+    @Test
+    public void expiredKeysAreSweptWithoutAReadIncludingAfterAReopen() throws InterruptedException {
+        InMemoryStorageBackend.Factory disk = new InMemoryStorageBackend.Factory();
+        AuthStorage storage = new AuthStorage(disk);
+        storage.set("permanent", "value");
+        storage.set("otp", "123456", 200);
+        assertTrue(storage.flush(5000));
+        assertTrue(awaitSwept(storage, 1));
+        assertEquals(0, storage.getExpiredCount());
+
+        storage.set("otp", "654321", 200);
+        assertTrue(storage.flush(5000));
+        AuthStorage reopened = new AuthStorage(disk);
+        assertTrue(awaitSwept(reopened, 1));
+        assertTrue(reopened.flush(5000));
+        assertNull(disk.opened.get("cap_auth_prefs").getString("cap_auth_otp", null));
+        assertEquals("value", reopened.get("permanent"));
+    }
+
+    private static boolean awaitSwept(AuthStorage storage, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (storage.getSweptCount() >= count) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
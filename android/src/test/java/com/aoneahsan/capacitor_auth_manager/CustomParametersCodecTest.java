@@ -0,0 +1,128 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CustomParametersCodecTest {
+    @Test
+    public void copyDoesNotShareNestedValues() throws JSONException {
+        JSObject parameters = new JSObject();
+        parameters.put("prompt", "consent");
+        parameters.put("nested", new JSONObject("{\"hd\":\"example.com\"}"));
+        parameters.put("scopes", new JSONArray("[\"email\"]"));
+
+        JSObject copy = CustomParametersCodec.copy(parameters);
+        copy.put("prompt", "select_account");
+        copy.getJSONObject("nested").put("hd", "other.com");
+        copy.getJSONArray("scopes").put("profile");
+
+        assertEquals("consent", parameters.getString("prompt"));
+        assertEquals("example.com", parameters.getJSONObject("nested").getString("hd"));
+        assertEquals(1, parameters.getJSONArray("scopes").length());
+        assertFalse(copy == parameters);
+    }
+
+    @Test
+    public void roundTripsEveryValueType() throws JSONException {
+        JSObject parameters = new JSObject();
+        parameters.put("prompt", "select_account \u00e9");
+        parameters.put("enabled", true);
+        parameters.put("maxAge", -3600);
+        parameters.put("issuedAt", 1700000000000L);
+        parameters.put("ratio", 0.25);
+        parameters.put("hint", JSONObject.NULL);
+        parameters.put("nested", new JSONObject("{\"hd\":\"example.com\"}"));
+        parameters.put("scopes", new JSONArray("[\"email\",\"profile\"]"));
+
+        JSObject decoded = CustomParametersCodec.decode(CustomParametersCodec.encode(parameters));
+
+        assertEquals("select_account \u00e9", decoded.getString("prompt"));
+        assertTrue(decoded.getBoolean("enabled"));
+        assertEquals(-3600, decoded.get("maxAge"));
+        assertEquals(1700000000000L, decoded.get("issuedAt"));
+        assertEquals(0.25, decoded.getDouble("ratio"), 0);
+        assertTrue(decoded.isNull("hint"));
+        assertEquals("example.com", decoded.getJSONObject("nested").getString("hd"));
+        assertEquals(2, decoded.getJSONArray("scopes").length());
+    }
+
+    @Test
+    public void neverStoresMoreThanTheJson() throws JSONException {
+        JSObject strings = new JSObject();
+        strings.put("prompt", "select_account");
+        String encoded = CustomParametersCodec.encode(strings);
+        assertEquals(strings.toString(), encoded);
+        assertEquals("select_account", CustomParametersCodec.decode(encoded).getString("prompt"));
+
+        JSObject numbers = new JSObject();
+        for (int i = 0; i < 8; i++) {
+            numbers.put("k" + i, 1700000000000L + i);
+            numbers.put("f" + i, i % 2 == 0);
+        }
+        encoded = CustomParametersCodec.encode(numbers);
+        assertTrue(encoded.length() + " >= " + numbers.toString().length(), encoded.length() < numbers.toString().length());
+        assertEquals(1700000000007L, CustomParametersCodec.decode(encoded).get("k7"));
+    }
+
+    @Test
+    public void readsLegacyJsonAndFixedWidthBinaryValues() throws IOException, JSONException {
+        assertEquals("consent", CustomParametersCodec.decode("{\"prompt\":\"consent\"}").getString("prompt"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(2);
+        writeLegacyString(out, "prompt");
+        out.writeByte('s');
+        writeLegacyString(out, "consent");
+        writeLegacyString(out, "maxAge");
+        out.writeByte('i');
+        out.writeInt(600);
+        JSObject legacy = CustomParametersCodec.decode("b1:" + Base64.getEncoder().encodeToString(bytes.toByteArray()));
+
+        assertEquals("consent", legacy.getString("prompt"));
+        assertEquals(600, legacy.getInt("maxAge"));
+    }
+
+    @Test
+    public void corruptValuesDecodeToNull() {
+        assertNull(CustomParametersCodec.decode("b2:!!!"));
+        assertNull(CustomParametersCodec.decode("b2://///w"));
+        assertNull(CustomParametersCodec.decode("not json"));
+    }
+
+    @Test
+    public void legacyValuesAreRewrittenOnFirstRead() throws IOException {
+        AuthStorage storage = new AuthStorage(new InMemoryStorageBackend.Factory());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        writeLegacyString(out, "prompt");
+        out.writeByte('s');
+        writeLegacyString(out, "consent");
+        storage.setForProvider("google", "custom_params", "b1:" + Base64.getEncoder().encodeToString(bytes.toByteArray()));
+
+        assertEquals("consent", storage.getCustomParameters("google").getString("prompt"));
+        assertEquals("{\"prompt\":\"consent\"}", storage.getForProvider("google", "custom_params"));
+    }
+
+    private static void writeLegacyString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,111 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Set;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+// Encrypts string values with AES-GCM on every write and decrypts them on every read, like EncryptedSharedPreferences;
+// keys and string sets are stored in the clear since only the per-read value cost matters here
+final class EncryptingStorageBackend implements StorageBackend {
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final StorageBackend delegate;
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    EncryptingStorageBackend(StorageBackend delegate) {
+        this.delegate = delegate;
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            this.key = generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        String encrypted = delegate.getString(key, null);
+        return encrypted != null ? decrypt(encrypted) : defaultValue;
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        return delegate.getStringSet(key, defaultValue);
+    }
+
+    @Override
+    public Set<String> getKeys() {
+        return delegate.getKeys();
+    }
+
+    @Override
+    public StorageBackend.Editor edit() {
+        StorageBackend.Editor editor = delegate.edit();
+        return new StorageBackend.Editor() {
+            @Override
+            public StorageBackend.Editor putString(String key, String value) {
+                editor.putString(key, value != null ? encrypt(value) : null);
+                return this;
+            }
+
+            @Override
+            public StorageBackend.Editor putStringSet(String key, Set<String> values) {
+                editor.putStringSet(key, values);
+                return this;
+            }
+
+            @Override
+            public StorageBackend.Editor remove(String key) {
+                editor.remove(key);
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                return editor.commit();
+            }
+
+            @Override
+            public void apply() {
+                editor.apply();
+            }
+        };
+    }
+
+    private String encrypt(String value) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] ciphertext = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            byte[] record = new byte[IV_BYTES + ciphertext.length];
+            System.arraycopy(iv, 0, record, 0, IV_BYTES);
+            System.arraycopy(ciphertext, 0, record, IV_BYTES, ciphertext.length);
+            return Base64.getEncoder().encodeToString(record);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String decrypt(String encrypted) {
+        try {
+            byte[] record = Base64.getDecoder().decode(encrypted);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, record, 0, IV_BYTES));
+            return new String(cipher.doFinal(record, IV_BYTES, record.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.google.crypto.tink.Aead;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+// AES-GCM through the JCE in place of the Keystore-backed Tink keyset; encryption can be made to fail on demand
+final class FakeAead implements Aead {
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean failing;
+
+    FakeAead() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            this.key = generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plaintext, byte[] associatedData) throws GeneralSecurityException {
+        if (failing) {
+            throw new GeneralSecurityException("Encryption failed");
+        }
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(associatedData);
+        byte[] ciphertext = cipher.doFinal(plaintext);
+        byte[] record = new byte[IV_BYTES + ciphertext.length];
+        System.arraycopy(iv, 0, record, 0, IV_BYTES);
+        System.arraycopy(ciphertext, 0, record, IV_BYTES, ciphertext.length);
+        return record;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext, byte[] associatedData) throws GeneralSecurityException {
+        if (ciphertext.length < IV_BYTES) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, ciphertext, 0, IV_BYTES));
+        cipher.updateAAD(associatedData);
+        return cipher.doFinal(ciphertext, IV_BYTES, ciphertext.length - IV_BYTES);
+    }
+}
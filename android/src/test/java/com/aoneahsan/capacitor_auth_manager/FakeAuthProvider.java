@@ -0,0 +1,120 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Answers every call on the calling thread from an in-memory session, the way an SDK with a cached session does
+final class FakeAuthProvider implements BaseAuthProvider {
+    private final String name;
+    private final AtomicInteger signInCount = new AtomicInteger();
+    private final AtomicInteger idTokenCount = new AtomicInteger();
+    private volatile JSObject currentUser;
+    // Lifetime of the ID tokens handed out
+    private volatile long tokenLifetimeMs = 60 * 60 * 1000;
+    // While set, initialize() keeps its callback until releaseInitialize(), like an SDK stuck on startup
+    private volatile boolean holdInitialize;
+    private volatile CapacitorAuthManager.AuthCallback<Void> heldInitialize;
+
+    FakeAuthProvider(String name) {
+        this.name = name;
+    }
+
+    void setCurrentUser(JSObject user) {
+        this.currentUser = user;
+    }
+
+    void setTokenLifetimeMs(long tokenLifetimeMs) {
+        this.tokenLifetimeMs = tokenLifetimeMs;
+    }
+
+    void holdInitialize() {
+        this.holdInitialize = true;
+    }
+
+    void releaseInitialize() {
+        holdInitialize = false;
+        CapacitorAuthManager.AuthCallback<Void> held = heldInitialize;
+        heldInitialize = null;
+        if (held != null) {
+            held.onResult(CapacitorAuthManager.AuthResult.success(null));
+        }
+    }
+
+    int getSignInCount() {
+        return signInCount.get();
+    }
+
+    int getIdTokenCount() {
+        return idTokenCount.get();
+    }
+
+    static JSObject user(String uid) {
+        return new JSObject().put("uid", uid);
+    }
+
+    @Override
+    public void initialize(CapacitorAuthManager.AuthCallback<Void> callback) {
+        if (holdInitialize) {
+            heldInitialize = callback;
+            return;
+        }
+        callback.onResult(CapacitorAuthManager.AuthResult.success(null));
+    }
+
+    @Override
+    public void signIn(JSObject credentials, JSObject options, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        JSObject user = user(name + "-user-" + signInCount.incrementAndGet());
+        currentUser = user;
+        callback.onResult(CapacitorAuthManager.AuthResult.success(user));
+    }
+
+    @Override
+    public void signOut(JSObject options, CapacitorAuthManager.AuthCallback<Void> callback) {
+        currentUser = null;
+        callback.onResult(CapacitorAuthManager.AuthResult.success(null));
+    }
+
+    @Override
+    public void getCurrentUser(CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        callback.onResult(CapacitorAuthManager.AuthResult.success(currentUser));
+    }
+
+    @Override
+    public void refreshToken(JSObject options, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        getIdToken(true, callback);
+    }
+
+    @Override
+    public void isSupported(CapacitorAuthManager.AuthCallback<Boolean> callback) {
+        callback.onResult(CapacitorAuthManager.AuthResult.success(true));
+    }
+
+    @Override
+    public void linkAccount(JSObject credentials, JSObject options, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        callback.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Operation not supported")));
+    }
+
+    @Override
+    public void unlinkAccount(CapacitorAuthManager.AuthCallback<Void> callback) {
+        callback.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Operation not supported")));
+    }
+
+    @Override
+    public void getIdToken(boolean forceRefresh, CapacitorAuthManager.AuthCallback<JSObject> callback) {
+        if (currentUser == null) {
+            callback.onResult(CapacitorAuthManager.AuthResult.error(new Exception("No user signed in")));
+            return;
+        }
+        JSObject result = new JSObject();
+        result.put("token", name + "-token-" + idTokenCount.incrementAndGet());
+        result.put("expiresAt", System.currentTimeMillis() + tokenLifetimeMs);
+        callback.onResult(CapacitorAuthManager.AuthResult.success(result));
+    }
+
+    @Override
+    public void revokeAccess(String token, CapacitorAuthManager.AuthCallback<Void> callback) {
+        currentUser = null;
+        callback.onResult(CapacitorAuthManager.AuthResult.success(null));
+    }
+}
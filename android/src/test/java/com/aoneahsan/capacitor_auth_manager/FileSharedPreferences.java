@@ -0,0 +1,165 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import android.content.SharedPreferences;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Rewrites and syncs the whole file on every commit, which is the write cost of the platform SharedPreferences
+final class FileSharedPreferences implements SharedPreferences {
+    private final File file;
+    private final Map<String, Object> values = new HashMap<>();
+
+    FileSharedPreferences(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public synchronized String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Set ? (Set<String>) value : defaultValue;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public SharedPreferences.Editor edit() {
+        return new FileEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    private synchronized boolean commit(Map<String, Object> changes, boolean clear) {
+        if (clear) {
+            values.clear();
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+            } else {
+                values.put(change.getKey(), change.getValue());
+            }
+        }
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(stream);
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(String.valueOf(entry.getValue()));
+            }
+            out.flush();
+            stream.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private final class FileEditor implements SharedPreferences.Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public SharedPreferences.Editor putString(String key, String value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putStringSet(String key, Set<String> values) {
+            changes.put(key, values != null ? Collections.unmodifiableSet(new HashSet<>(values)) : null);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putInt(String key, int value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SharedPreferences.Editor putLong(String key, long value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SharedPreferences.Editor putFloat(String key, float value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SharedPreferences.Editor putBoolean(String key, boolean value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SharedPreferences.Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return FileSharedPreferences.this.commit(changes, clear);
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+public class IdTokenCacheTest {
+    private static JSObject token(String value) {
+        JSObject result = new JSObject();
+        result.put("token", value);
+        result.put("expiresAt", System.currentTimeMillis() + 60 * 60 * 1000);
+        return result;
+    }
+
+    @Test
+    public void invalidatingOneProviderKeepsOtherFetchesInFlight() {
+        IdTokenCache cache = new IdTokenCache();
+        long googleGeneration = cache.generation("google");
+        long appleGeneration = cache.generation("apple");
+
+        cache.invalidate("google");
+
+        assertEquals(0, cache.put("google", token("stale"), googleGeneration));
+        assertNull(cache.get("google"));
+        assertTrue(cache.put("apple", token("fresh"), appleGeneration) > 0);
+        assertNotNull(cache.get("apple"));
+    }
+
+    @Test
+    public void clearDiscardsEveryFetchInFlight() {
+        IdTokenCache cache = new IdTokenCache();
+        cache.invalidate("google");
+        long googleGeneration = cache.generation("google");
+        long appleGeneration = cache.generation("apple");
+
+        cache.clear();
+
+        assertEquals(0, cache.put("google", token("stale"), googleGeneration));
+        assertEquals(0, cache.put("apple", token("stale"), appleGeneration));
+        assertTrue(cache.put("apple", token("fresh"), cache.generation("apple")) > 0);
+        assertEquals("fresh", cache.get("apple").getString("token"));
+    }
+
+    @Test
+    public void fetchesStartedDuringASignOutAreNeverCached() {
+        IdTokenCache cache = new IdTokenCache();
+        cache.suspend("google");
+        long duringSignOut = cache.generation("google");
+
+        assertEquals(0, cache.put("google", token("racing"), duringSignOut));
+        assertTrue(cache.put("apple", token("fresh"), cache.generation("apple")) > 0);
+
+        cache.resume("google");
+        assertEquals(0, cache.put("google", token("late"), duringSignOut));
+        assertNull(cache.get("google"));
+        assertTrue(cache.put("google", token("signed-in-again"), cache.generation("google")) > 0);
+    }
+
+    @Test
+    public void signingOutEveryProviderBlocksAllOfThemUntilItFinishes() {
+        IdTokenCache cache = new IdTokenCache();
+        cache.suspendAll();
+        long duringSignOut = cache.generation("apple");
+
+        assertEquals(0, cache.put("apple", token("racing"), duringSignOut));
+
+        cache.resumeAll();
+        assertEquals(0, cache.put("apple", token("late"), duringSignOut));
+        assertTrue(cache.put("apple", token("fresh"), cache.generation("apple")) > 0);
+    }
+}
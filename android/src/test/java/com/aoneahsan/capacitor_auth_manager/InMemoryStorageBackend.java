@@ -0,0 +1,104 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Heap-only StorageBackend for tests and benchmarks; counts reads so callers can tell cache hits from backend reads
+final class InMemoryStorageBackend implements StorageBackend {
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+
+    // Reopening a name returns the same backend, so storage built on one factory survives a simulated restart
+    static final class Factory implements StorageBackend.Factory {
+        final Map<String, InMemoryStorageBackend> opened = new ConcurrentHashMap<>();
+
+        @Override
+        public StorageBackend open(String name) {
+            InMemoryStorageBackend backend = opened.get(name);
+            if (backend == null) {
+                backend = new InMemoryStorageBackend();
+                opened.put(name, backend);
+            }
+            return backend;
+        }
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        readCount.incrementAndGet();
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        readCount.incrementAndGet();
+        Object value = values.get(key);
+        return value instanceof Set ? new HashSet<>((Set<String>) value) : defaultValue;
+    }
+
+    @Override
+    public Set<String> getKeys() {
+        return new HashSet<>(values.keySet());
+    }
+
+    @Override
+    public StorageBackend.Editor edit() {
+        return new Editor();
+    }
+
+    long getReadCount() {
+        return readCount.get();
+    }
+
+    long getCommitCount() {
+        return commitCount.get();
+    }
+
+    private final class Editor implements StorageBackend.Editor {
+        // A null value marks a removal
+        private final Map<String, Object> staged = new HashMap<>();
+
+        @Override
+        public StorageBackend.Editor putString(String key, String value) {
+            staged.put(key, value);
+            return this;
+        }
+
+        @Override
+        public StorageBackend.Editor putStringSet(String key, Set<String> set) {
+            staged.put(key, set != null ? new HashSet<>(set) : null);
+            return this;
+        }
+
+        @Override
+        public StorageBackend.Editor remove(String key) {
+            staged.put(key, null);
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            for (Map.Entry<String, Object> entry : staged.entrySet()) {
+                if (entry.getValue() == null) {
+                    values.remove(entry.getKey());
+                } else {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+            commitCount.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
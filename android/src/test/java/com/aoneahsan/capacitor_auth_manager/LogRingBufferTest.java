@@ -0,0 +1,198 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class LogRingBufferTest {
+    private static LogRingBuffer.Consumer collectInto(List<String> messages) {
+        return (timestamp, level, message, args, throwable) -> messages.add(message);
+    }
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(4, new LogRingBuffer(3).getCapacity());
+        assertEquals(8, new LogRingBuffer(5).getCapacity());
+        assertEquals(1024, new LogRingBuffer(1024).getCapacity());
+    }
+
+    @Test
+    public void drainsInPublishOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i, AuthLogger.LogLevel.INFO, "message-" + i, null, null));
+        }
+        List<String> messages = new ArrayList<>();
+        assertEquals(5, buffer.drain(collectInto(messages), Integer.MAX_VALUE));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("message-" + i, messages.get(i));
+        }
+        assertEquals(0, buffer.drain(collectInto(messages), Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void drainStopsAtMaxRecords() {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(i, AuthLogger.LogLevel.DEBUG, "message-" + i, null, null);
+        }
+        List<String> messages = new ArrayList<>();
+        assertEquals(4, buffer.drain(collectInto(messages), 4));
+        assertEquals(2, buffer.drain(collectInto(messages), 4));
+        assertEquals("message-5", messages.get(5));
+    }
+
+    @Test
+    public void fullBufferDropsAndCountsInsteadOfBlocking() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i, AuthLogger.LogLevel.INFO, "message-" + i, null, null));
+        }
+        assertFalse(buffer.offer(4, AuthLogger.LogLevel.INFO, "dropped", null, null));
+        assertEquals(1, buffer.getDroppedCount());
+        assertEquals(4, buffer.getPublishedCount());
+
+        // Drained slots are reused
+        List<String> messages = new ArrayList<>();
+        assertEquals(1, buffer.drain(collectInto(messages), 1));
+        assertTrue(buffer.offer(5, AuthLogger.LogLevel.INFO, "message-5", null, null));
+        buffer.drain(collectInto(messages), Integer.MAX_VALUE);
+        assertEquals("message-5", messages.get(messages.size() - 1));
+        assertFalse(messages.contains("dropped"));
+    }
+
+    @Test
+    public void drainHandsOverEveryRecordField() {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        Object[] args = {"google"};
+        Throwable error = new Exception("failed");
+        buffer.offer(1, AuthLogger.LogLevel.ERROR, "Sign in with %s", args, error);
+        List<Object[]> seenArgs = new ArrayList<>();
+        List<Throwable> seenErrors = new ArrayList<>();
+        buffer.drain((timestamp, level, message, recordArgs, throwable) -> {
+            assertEquals(1, timestamp);
+            assertEquals(AuthLogger.LogLevel.ERROR, level);
+            seenArgs.add(recordArgs);
+            seenErrors.add(throwable);
+        }, 1);
+        assertTrue(seenArgs.get(0) == args);
+        assertTrue(seenErrors.get(0) == error);
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingAndKeepTheirOwnOrder() throws InterruptedException {
+        int producers = 4;
+        int recordsPerProducer = 20000;
+        LogRingBuffer buffer = new LogRingBuffer(256);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch produced = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < recordsPerProducer; i++) {
+                        // Encodes producer and sequence number in the timestamp; retries rather than dropping
+                        while (!buffer.offer(producer * (long) recordsPerProducer + i, AuthLogger.LogLevel.DEBUG, "record", null, null)) {
+                            Thread.yield();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    produced.countDown();
+                }
+            }).start();
+        }
+
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        int[] consumed = new int[1];
+        LogRingBuffer.Consumer check = (timestamp, level, message, args, throwable) -> {
+            int producer = (int) (timestamp / recordsPerProducer);
+            long sequence = timestamp % recordsPerProducer;
+            assertEquals(lastSeen[producer] + 1, sequence);
+            lastSeen[producer] = sequence;
+            consumed[0]++;
+        };
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (consumed[0] < producers * recordsPerProducer && System.nanoTime() < deadline) {
+            if (buffer.drain(check, 64) == 0) {
+                Thread.yield();
+            }
+        }
+        assertTrue(produced.await(1, TimeUnit.SECONDS));
+        assertEquals(producers * recordsPerProducer, consumed[0]);
+        assertEquals(producers * (long) recordsPerProducer, buffer.getPublishedCount());
+    }
+
+    @Test
+    public void parkedConsumerWakesOnOffer() throws InterruptedException {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        List<String> messages = new ArrayList<>();
+        CountDownLatch received = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            while (buffer.drain(collectInto(messages), Integer.MAX_VALUE) == 0) {
+                buffer.awaitRecords(0);
+            }
+            received.countDown();
+        });
+        consumer.start();
+        Thread.sleep(50);
+
+        assertTrue(buffer.offer(0, AuthLogger.LogLevel.INFO, "wake", null, null));
+        assertTrue(received.await(2, TimeUnit.SECONDS));
+        consumer.join(2000);
+        assertEquals(Arrays.asList("wake"), messages);
+    }
+
+    @Test
+    public void closeWakesAParkedConsumer() throws InterruptedException {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        CountDownLatch woke = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            buffer.awaitRecords(0);
+            woke.countDown();
+        });
+        consumer.start();
+        Thread.sleep(50);
+
+        buffer.close();
+        assertTrue(woke.await(2, TimeUnit.SECONDS));
+        consumer.join(2000);
+    }
+
+    @Test
+    public void wakeReleasesTheConsumerWithoutARecord() throws InterruptedException {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        CountDownLatch woke = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            buffer.awaitRecords(0);
+            woke.countDown();
+        });
+        consumer.start();
+        Thread.sleep(50);
+
+        buffer.wake();
+        assertTrue(woke.await(2, TimeUnit.SECONDS));
+        consumer.join(2000);
+
+        // A wake made while nobody waits is kept for the next wait, then used up
+        buffer.wake();
+        long start = System.nanoTime();
+        buffer.awaitRecords(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        start = System.nanoTime();
+        buffer.awaitRecords(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+}
@@ -0,0 +1,98 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class LogStorageBackendTest {
+    private File directory;
+    private File file;
+    private FakeAead aead;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cap_auth_log").toFile();
+        file = new File(directory, "test.log");
+        aead = new FakeAead();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void failedAppendKeepsTheLastCommittedState() throws IOException {
+        LogStorageBackend backend = new LogStorageBackend(file, aead);
+        assertTrue(backend.edit().putString("user", "first").commit());
+        long committedLength = file.length();
+
+        aead.setFailing(true);
+        assertFalse(backend.edit().putString("user", "second").putString("token", "t").commit());
+        assertEquals("first", backend.getString("user", null));
+        assertNull(backend.getString("token", null));
+        assertEquals(committedLength, file.length());
+
+        aead.setFailing(false);
+        assertTrue(backend.edit().putString("provider", "google").commit());
+        LogStorageBackend reopened = new LogStorageBackend(file, aead);
+        assertEquals("first", reopened.getString("user", null));
+        assertNull(reopened.getString("token", null));
+        assertEquals("google", reopened.getString("provider", null));
+    }
+
+    @Test
+    public void interruptedAppendDoesNotBreakLaterCommits() throws IOException {
+        LogStorageBackend backend = new LogStorageBackend(file, aead);
+        assertTrue(backend.edit().putString("user", "first").commit());
+
+        // An interrupted thread closes the channel on its next write
+        Thread.currentThread().interrupt();
+        boolean committed;
+        try {
+            committed = backend.edit().putString("user", "second").commit();
+        } finally {
+            Thread.interrupted();
+        }
+        assertFalse(committed);
+        assertEquals("first", backend.getString("user", null));
+
+        assertTrue(backend.edit().putString("provider", "google").remove("user").commit());
+        LogStorageBackend reopened = new LogStorageBackend(file, aead);
+        assertNull(reopened.getString("user", null));
+        assertEquals("google", reopened.getString("provider", null));
+    }
+
+    @Test
+    public void compactionKeepsEveryLiveEntry() throws IOException {
+        LogStorageBackend backend = new LogStorageBackend(file, aead);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            value.append('x');
+        }
+        for (int i = 0; i < 400; i++) {
+            assertTrue(backend.edit().putString("key" + (i % 20), value.toString() + i).commit());
+        }
+        assertTrue(file.length() < 400 * 256);
+
+        LogStorageBackend reopened = new LogStorageBackend(file, aead);
+        for (int i = 380; i < 400; i++) {
+            assertEquals(value.toString() + i, reopened.getString("key" + (i % 20), null));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// A new manager over the same storage stands in for a process restart; the fake providers keep their SDK session
+public class PersistedSessionTest {
+    private static final long TIMEOUT_MS = 5000;
+    private static final String CONFIG = "{\"providers\":[{\"provider\":\"google\"},{\"provider\":\"apple\"}]}";
+
+    private final InMemoryStorageBackend.Factory disk = new InMemoryStorageBackend.Factory();
+    private final FakeAuthProvider google = new FakeAuthProvider("google");
+    private final FakeAuthProvider apple = new FakeAuthProvider("apple");
+    private final AtomicInteger googleCreates = new AtomicInteger();
+
+    private interface Call<T> {
+        void start(CapacitorAuthManager.AuthCallback<T> callback);
+    }
+
+    private static <T> CapacitorAuthManager.AuthResult<T> await(Call<T> call) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<CapacitorAuthManager.AuthResult<T>> result = new AtomicReference<>();
+        call.start(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        assertTrue("callback was not called", done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return result.get();
+    }
+
+    private CapacitorAuthManager start() throws InterruptedException, JSONException {
+        CapacitorAuthManager manager = new CapacitorAuthManager(null, null, disk);
+        manager.registerProviderFactory("google", options -> {
+            googleCreates.incrementAndGet();
+            return google;
+        });
+        manager.registerProviderFactory("apple", options -> apple);
+        JSObject options = new JSObject(CONFIG);
+        assertTrue(PersistedSessionTest.<Void>await(callback -> manager.initialize(options, callback)).isSuccess());
+        return manager;
+    }
+
+    @Test
+    public void restartRestoresTheCurrentProvider() throws Exception {
+        CapacitorAuthManager first = start();
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> first.signIn("google", null, null, callback)).isSuccess());
+        first.flushStorage().get();
+
+        googleCreates.set(0);
+        CapacitorAuthManager restarted = start();
+        assertEquals(0, googleCreates.get());
+        CapacitorAuthManager.AuthResult<JSObject> user = await(restarted::getCurrentUser);
+        assertTrue(user.isSuccess());
+        assertEquals("google-user-1", user.getData().optString("uid"));
+        assertEquals(1, googleCreates.get());
+    }
+
+    @Test
+    public void onlyCallsAnsweredWithoutStartingOrCallingAProviderCountAsFast() throws Exception {
+        CapacitorAuthManager first = start();
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> first.signIn("google", null, null, callback)).isSuccess());
+        first.flushStorage().get();
+
+        CapacitorAuthManager restarted = start();
+        JSObject google = new JSObject().put("provider", "google");
+        assertFalse(restarted.isCurrentUserLookupReady());
+        assertFalse(restarted.canServeIdTokenFromCache(google));
+
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> restarted.getIdToken(google, callback)).isSuccess());
+        assertTrue(restarted.isCurrentUserLookupReady());
+        assertTrue(restarted.canServeIdTokenFromCache(google));
+        assertFalse(restarted.canServeIdTokenFromCache(new JSObject().put("provider", "google").put("forceRefresh", true)));
+        assertFalse(restarted.canServeIdTokenFromCache(new JSObject().put("provider", "apple")));
+    }
+
+    @Test
+    public void restartedSignOutReachesProvidersThatWereNeverCreated() throws Exception {
+        CapacitorAuthManager first = start();
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> first.signIn("google", null, null, callback)).isSuccess());
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> first.signIn("apple", null, null, callback)).isSuccess());
+        JSObject appleOnly = new JSObject().put("provider", "apple");
+        assertTrue(PersistedSessionTest.<JSObject>await(callback -> first.signOut(appleOnly, callback)).isSuccess());
+        first.flushStorage().get();
+
+        // No current provider after the restart, so the lookup fans out to providers with a persisted session
+        CapacitorAuthManager restarted = start();
+        CapacitorAuthManager.AuthResult<JSObject> user = await(restarted::getCurrentUser);
+        assertEquals("google-user-1", user.getData().optString("uid"));
+
+        CapacitorAuthManager.AuthResult<JSObject> signedOut = PersistedSessionTest.<JSObject>await(callback -> restarted.signOut(null, callback));
+        assertTrue(signedOut.isSuccess());
+        assertTrue(signedOut.getData().getJSObject("providers").has("google"));
+        assertNull(await(google::getCurrentUser).getData());
+    }
+}
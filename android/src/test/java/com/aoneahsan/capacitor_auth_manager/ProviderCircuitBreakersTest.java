@@ -0,0 +1,54 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProviderCircuitBreakersTest {
+    private final ProviderCircuitBreakers breakers = new ProviderCircuitBreakers(SharedScheduler.create());
+
+    private CapacitorAuthManager.AuthResult<String> call(String provider, Exception error) {
+        AtomicReference<CapacitorAuthManager.AuthResult<String>> result = new AtomicReference<>();
+        breakers.<String>execute(provider, result::set, done -> done.onResult(CapacitorAuthManager.AuthResult.error(error)));
+        return result.get();
+    }
+
+    @Test
+    public void providerAnswersThatAreErrorsNeverOpenTheCircuit() {
+        for (int i = 0; i < 40; i++) {
+            call("google", new Exception("No user signed in"));
+        }
+        assertEquals(ProviderCircuitBreakers.CLOSED, breakers.getState("google"));
+    }
+
+    @Test
+    public void transportFailuresOpenTheCircuit() {
+        for (int i = 0; i < 10; i++) {
+            call("google", new Exception("Token request failed", new IOException("Connection reset")));
+        }
+        assertEquals(ProviderCircuitBreakers.OPEN, breakers.getState("google"));
+
+        CapacitorAuthManager.AuthResult<String> rejected = call("google", new Exception("not called"));
+        assertFalse(rejected.isSuccess());
+        assertEquals(AuthException.CIRCUIT_OPEN, ((AuthException) rejected.getError()).getCode());
+        assertEquals(ProviderCircuitBreakers.CLOSED, breakers.getState("apple"));
+    }
+
+    @Test
+    public void classifiesOnlyUnreachableOrSilentProvidersAsFailures() {
+        assertTrue(ProviderCircuitBreakers.isProviderFailure(new AuthException(AuthException.TIMEOUT, "timed out")));
+        assertTrue(ProviderCircuitBreakers.isProviderFailure(new AuthException(AuthException.PROVIDER_UNAVAILABLE, "unavailable")));
+        assertTrue(ProviderCircuitBreakers.isProviderFailure(new IOException("offline")));
+        Exception sdkMissing = new Exception("SDK missing");
+        sdkMissing.initCause(new NoClassDefFoundError("com/example/Sdk"));
+        assertTrue(ProviderCircuitBreakers.isProviderFailure(sdkMissing));
+        assertFalse(ProviderCircuitBreakers.isProviderFailure(new AuthException(AuthException.TOO_MANY_REQUESTS, "busy")));
+        assertFalse(ProviderCircuitBreakers.isProviderFailure(new AuthException(AuthException.CIRCUIT_OPEN, "open")));
+        assertFalse(ProviderCircuitBreakers.isProviderFailure(new IllegalStateException("Invalid credential")));
+    }
+}
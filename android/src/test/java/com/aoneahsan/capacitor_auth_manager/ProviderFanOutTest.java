@@ -0,0 +1,160 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProviderFanOutTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private final ProviderFanOut fanOut = new ProviderFanOut(SharedScheduler.create());
+
+    private static Map<String, FakeAuthProvider> providers(String... names) {
+        Map<String, FakeAuthProvider> providers = new LinkedHashMap<>();
+        for (String name : names) {
+            providers.put(name, new FakeAuthProvider(name));
+        }
+        return providers;
+    }
+
+    private static <T> CapacitorAuthManager.AuthResult<T> await(Recorder<T> recorder) throws InterruptedException {
+        assertTrue("callback was not called", recorder.called.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return recorder.result.get();
+    }
+
+    // Fails the test if the callback is called more than once
+    private static final class Recorder<T> implements CapacitorAuthManager.AuthCallback<T> {
+        final CountDownLatch called = new CountDownLatch(1);
+        final AtomicReference<CapacitorAuthManager.AuthResult<T>> result = new AtomicReference<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void onResult(CapacitorAuthManager.AuthResult<T> result) {
+            if (calls.incrementAndGet() > 1) {
+                throw new AssertionError("callback called twice");
+            }
+            this.result.set(result);
+            called.countDown();
+        }
+    }
+
+    @Test
+    public void firstNonNullWithoutProvidersAnswersNull() throws InterruptedException {
+        Map<String, FakeAuthProvider> providers = providers();
+        Recorder<JSObject> recorder = new Recorder<>();
+        fanOut.firstNonNull(providers.keySet(), (name, done) -> providers.get(name).getCurrentUser(done), TIMEOUT_MS, recorder);
+        CapacitorAuthManager.AuthResult<JSObject> result = await(recorder);
+        assertTrue(result.isSuccess());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void firstNonNullReturnsTheSignedInUser() throws InterruptedException {
+        Map<String, FakeAuthProvider> providers = providers("google", "apple", "microsoft");
+        providers.get("apple").setCurrentUser(FakeAuthProvider.user("apple-user"));
+
+        Recorder<JSObject> recorder = new Recorder<>();
+        fanOut.firstNonNull(providers.keySet(), (name, done) -> providers.get(name).getCurrentUser(done), TIMEOUT_MS, recorder);
+        CapacitorAuthManager.AuthResult<JSObject> result = await(recorder);
+        assertTrue(result.isSuccess());
+        assertEquals("apple-user", result.getData().optString("uid"));
+    }
+
+    @Test
+    public void firstNonNullAnswersNullWhenEveryProviderFailsOrHasNoUser() throws InterruptedException {
+        Map<String, FakeAuthProvider> providers = providers("google", "apple");
+        Recorder<JSObject> recorder = new Recorder<>();
+        fanOut.<JSObject>firstNonNull(providers.keySet(), (name, done) -> {
+            if (name.equals("google")) {
+                throw new IllegalStateException("SDK not ready");
+            }
+            providers.get(name).getCurrentUser(done);
+        }, TIMEOUT_MS, recorder);
+        CapacitorAuthManager.AuthResult<JSObject> result = await(recorder);
+        assertTrue(result.isSuccess());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void firstNonNullDoesNotWaitForASilentProviderPastTheTimeout() throws InterruptedException {
+        Map<String, FakeAuthProvider> providers = providers("google", "apple");
+        Recorder<JSObject> recorder = new Recorder<>();
+        long startedAt = System.nanoTime();
+        fanOut.<JSObject>firstNonNull(providers.keySet(), (name, done) -> {
+            if (name.equals("apple")) {
+                providers.get(name).getCurrentUser(done);
+            }
+            // google never answers
+        }, 200, recorder);
+        CapacitorAuthManager.AuthResult<JSObject> result = await(recorder);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertTrue(result.isSuccess());
+        assertNull(result.getData());
+        assertTrue("answered after " + elapsedMs + " ms", elapsedMs >= 150 && elapsedMs < TIMEOUT_MS);
+    }
+
+    @Test
+    public void allReportsEveryProviderInOrder() throws InterruptedException {
+        CountDownLatch called = new CountDownLatch(1);
+        AtomicReference<Map<String, CapacitorAuthManager.AuthResult<Void>>> outcomes = new AtomicReference<>();
+        Map<String, FakeAuthProvider> providers = providers("google", "apple", "microsoft");
+        fanOut.<Void>all(providers.keySet(), (name, done) -> {
+            if (name.equals("apple")) {
+                done.onResult(CapacitorAuthManager.AuthResult.error(new Exception("Revocation failed")));
+            } else {
+                providers.get(name).signOut(null, done);
+            }
+        }, TIMEOUT_MS, results -> {
+            outcomes.set(results);
+            called.countDown();
+        });
+        assertTrue(called.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        List<String> order = new ArrayList<>(outcomes.get().keySet());
+        assertEquals(3, order.size());
+        assertEquals("google", order.get(0));
+        assertEquals("apple", order.get(1));
+        assertEquals("microsoft", order.get(2));
+        assertTrue(outcomes.get().get("google").isSuccess());
+        assertFalse(outcomes.get().get("apple").isSuccess());
+        assertTrue(outcomes.get().get("microsoft").isSuccess());
+    }
+
+    @Test
+    public void allRecordsATimeoutForASilentProvider() throws InterruptedException {
+        CountDownLatch called = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<Map<String, CapacitorAuthManager.AuthResult<Void>>> outcomes = new AtomicReference<>();
+        Map<String, FakeAuthProvider> providers = providers("google", "apple");
+        fanOut.<Void>all(providers.keySet(), (name, done) -> {
+            if (name.equals("google")) {
+                providers.get(name).signOut(null, done);
+            }
+        }, 200, results -> {
+            calls.incrementAndGet();
+            outcomes.set(results);
+            called.countDown();
+        });
+        assertTrue(called.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(outcomes.get().get("google").isSuccess());
+        CapacitorAuthManager.AuthResult<Void> apple = outcomes.get().get("apple");
+        assertNotNull(apple);
+        assertFalse(apple.isSuccess());
+        Thread.sleep(100);
+        assertEquals(1, calls.get());
+    }
+}
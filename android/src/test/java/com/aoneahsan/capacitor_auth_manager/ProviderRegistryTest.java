@@ -0,0 +1,64 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProviderRegistryTest {
+    @Test
+    public void missingSdkClassFailsTheAcquireAndIsRetriedLater() {
+        ProviderRegistry registry = new ProviderRegistry(SharedScheduler.create());
+        AtomicInteger creates = new AtomicInteger();
+        FakeAuthProvider provider = new FakeAuthProvider("google");
+        registry.registerFactory("google", options -> {
+            if (creates.incrementAndGet() == 1) {
+                throw new NoClassDefFoundError("com/google/android/gms/auth/api/signin/GoogleSignIn");
+            }
+            return provider;
+        });
+        registry.configure("google", null);
+
+        AtomicReference<CapacitorAuthManager.AuthResult<BaseAuthProvider>> first = new AtomicReference<>();
+        registry.acquire("google", first::set);
+        assertFalse(first.get().isSuccess());
+        assertEquals(AuthException.PROVIDER_UNAVAILABLE, ((AuthException) first.get().getError()).getCode());
+
+        AtomicReference<CapacitorAuthManager.AuthResult<BaseAuthProvider>> second = new AtomicReference<>();
+        registry.acquire("google", second::set);
+        assertTrue(second.get().isSuccess());
+        assertSame(provider, second.get().getData());
+    }
+
+    @Test
+    public void stuckStartupTimesOutButStillServesLaterCalls() throws InterruptedException {
+        ProviderRegistry registry = new ProviderRegistry(SharedScheduler.create());
+        registry.setStartupTimeoutMs(100);
+        FakeAuthProvider provider = new FakeAuthProvider("google");
+        provider.holdInitialize();
+        registry.registerFactory("google", options -> provider);
+        registry.configure("google", null);
+
+        CountDownLatch answered = new CountDownLatch(1);
+        AtomicReference<CapacitorAuthManager.AuthResult<BaseAuthProvider>> first = new AtomicReference<>();
+        registry.acquire("google", result -> {
+            first.set(result);
+            answered.countDown();
+        });
+        assertTrue(answered.await(2, TimeUnit.SECONDS));
+        assertEquals(AuthException.TIMEOUT, ((AuthException) first.get().getError()).getCode());
+
+        provider.releaseInitialize();
+        AtomicReference<CapacitorAuthManager.AuthResult<BaseAuthProvider>> second = new AtomicReference<>();
+        registry.acquire("google", second::set);
+        assertTrue(second.get().isSuccess());
+        assertSame(provider, second.get().getData());
+    }
+}
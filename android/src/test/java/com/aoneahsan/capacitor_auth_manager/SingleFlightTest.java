@@ -0,0 +1,135 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightTest {
+    private final SingleFlight<String> flights = new SingleFlight<>();
+
+    @Test
+    public void callersArrivingWhileInFlightShareOneCall() {
+        AtomicReference<CapacitorAuthManager.AuthCallback<String>> pending = new AtomicReference<>();
+        AtomicInteger starts = new AtomicInteger();
+        List<CapacitorAuthManager.AuthResult<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            flights.execute("google", results::add, done -> {
+                starts.incrementAndGet();
+                pending.set(done);
+            });
+        }
+        assertEquals(1, starts.get());
+        assertEquals(0, results.size());
+        assertEquals(1, flights.getInFlightCount());
+
+        CapacitorAuthManager.AuthResult<String> result = CapacitorAuthManager.AuthResult.success("token");
+        pending.get().onResult(result);
+        assertEquals(3, results.size());
+        for (CapacitorAuthManager.AuthResult<String> delivered : results) {
+            assertSame(result, delivered);
+        }
+        assertEquals(1, flights.getStartedCount());
+        assertEquals(2, flights.getCoalescedCount());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void keysDoNotShareFlights() {
+        AtomicInteger starts = new AtomicInteger();
+        flights.execute("google", result -> { }, done -> starts.incrementAndGet());
+        flights.execute("apple", result -> { }, done -> starts.incrementAndGet());
+        assertEquals(2, starts.get());
+        assertEquals(2, flights.getInFlightCount());
+    }
+
+    @Test
+    public void callAfterCompletionStartsAgain() {
+        AtomicInteger starts = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            flights.execute("google", result -> { }, done -> {
+                starts.incrementAndGet();
+                done.onResult(CapacitorAuthManager.AuthResult.success("token"));
+            });
+        }
+        assertEquals(2, starts.get());
+        assertEquals(0, flights.getCoalescedCount());
+    }
+
+    @Test
+    public void throwingCallFailsEveryWaiterAndIsForgotten() {
+        AtomicReference<CapacitorAuthManager.AuthResult<String>> result = new AtomicReference<>();
+        flights.execute("google", result::set, done -> {
+            throw new IllegalStateException("SDK not ready");
+        });
+        assertFalse(result.get().isSuccess());
+        assertEquals("SDK not ready", result.get().getError().getMessage());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void linkageErrorFailsTheFlightInsteadOfLeavingItMapped() {
+        AtomicReference<CapacitorAuthManager.AuthResult<String>> result = new AtomicReference<>();
+        flights.execute("google", result::set, done -> {
+            throw new NoClassDefFoundError("com/google/android/gms/auth/api/signin/GoogleSignIn");
+        });
+        assertFalse(result.get().isSuccess());
+        assertTrue(result.get().getError().getCause() instanceof NoClassDefFoundError);
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void secondReportFromProviderIsIgnored() {
+        List<CapacitorAuthManager.AuthResult<String>> results = new ArrayList<>();
+        flights.execute("google", results::add, done -> {
+            done.onResult(CapacitorAuthManager.AuthResult.success("first"));
+            done.onResult(CapacitorAuthManager.AuthResult.success("second"));
+        });
+        assertEquals(1, results.size());
+        assertEquals("first", results.get(0).getData());
+    }
+
+    @Test
+    public void concurrentCallersEachGetExactlyOneResult() throws InterruptedException {
+        int threads = 8;
+        int callsPerThread = 500;
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger starts = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    ready.await();
+                    for (int i = 0; i < callsPerThread; i++) {
+                        flights.execute("google", result -> delivered.incrementAndGet(), done -> {
+                            starts.incrementAndGet();
+                            Thread.yield();
+                            done.onResult(CapacitorAuthManager.AuthResult.success("token"));
+                        });
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            }).start();
+        }
+        ready.countDown();
+        assertTrue(finished.await(30, TimeUnit.SECONDS));
+        assertEquals(threads * callsPerThread, delivered.get());
+        assertEquals(starts.get(), flights.getStartedCount());
+        assertEquals(threads * callsPerThread, flights.getStartedCount() + flights.getCoalescedCount());
+        assertEquals(0, flights.getInFlightCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// One committed write and one read against the encrypted preferences file and the append-only log,
+// with a store the size of a few signed-in providers and one much larger
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBackendBenchmark {
+    private static final String VALUE = "{\"uid\":\"1234567890\",\"email\":\"user@example.com\",\"displayName\":\"Example User\"}";
+
+    @Param({"preferences", "log"})
+    public String backendType;
+
+    @Param({"16", "256"})
+    public int entries;
+
+    private File directory;
+    private StorageBackend backend;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cap_auth_bench").toFile();
+        if ("log".equals(backendType)) {
+            backend = new LogStorageBackend(new File(directory, "bench.log"), new FakeAead());
+        } else {
+            backend = new EncryptingStorageBackend(new PreferencesStorageBackend(new FileSharedPreferences(new File(directory, "bench.xml"))));
+        }
+        StorageBackend.Editor editor = backend.edit();
+        for (int i = 0; i < entries; i++) {
+            editor.putString("key" + i, VALUE);
+        }
+        if (!editor.commit()) {
+            throw new IllegalStateException("Unable to populate " + backendType);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean commit() {
+        next = (next + 1) % entries;
+        return backend.edit().putString("key" + next, VALUE).commit();
+    }
+
+    @Benchmark
+    public String read() {
+        return backend.getString("key0", null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.aoneahsan.capacitor_auth_manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenRefreshSchedulerTest {
+    private static final long LEAD_MS = 60 * 1000;
+
+    @Test
+    public void refreshesWaitAtLeastTheMinimumDelayAndStopWhenExpiryDoesNotAdvance() throws InterruptedException {
+        long soon = System.currentTimeMillis() + 1000;
+        long later = soon + 60 * 60 * 1000;
+        Map<String, Long> refreshedExpiry = new ConcurrentHashMap<>();
+        refreshedExpiry.put("google", soon);
+        refreshedExpiry.put("apple", later);
+        Map<String, AtomicInteger> refreshes = new ConcurrentHashMap<>();
+        refreshes.put("google", new AtomicInteger());
+        refreshes.put("apple", new AtomicInteger());
+        CountDownLatch refreshed = new CountDownLatch(2);
+
+        TokenRefreshScheduler scheduler = new TokenRefreshScheduler((provider, callback) -> {
+            refreshes.get(provider).incrementAndGet();
+            JSObject result = new JSObject();
+            result.put("token", provider + "-token");
+            result.put("expiresAt", refreshedExpiry.get(provider));
+            callback.onResult(CapacitorAuthManager.AuthResult.success(result));
+        }, LEAD_MS, SharedScheduler.create());
+        scheduler.setListener((provider, result) -> refreshed.countDown());
+
+        // Both tokens are already inside the lead window
+        scheduler.track("google", soon);
+        scheduler.track("apple", soon);
+        Thread.sleep(1000);
+        assertEquals(0, refreshes.get("google").get());
+        assertEquals(0, refreshes.get("apple").get());
+
+        assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, refreshes.get("google").get());
+        assertEquals(1, refreshes.get("apple").get());
+        // Google answered with the same expiry, so refreshing again would loop
+        assertFalse(scheduler.isTracked("google"));
+        // Apple was not re-tracked through the token cache here, so the scheduler keeps it itself
+        assertTrue(scheduler.isTracked("apple"));
+        scheduler.clear();
+    }
+}
@@ -3,7 +3,7 @@ import type { PluginListenerHandle } from '@capacitor/core';
 export interface CapacitorAuthManagerPlugin {
   initialize(options: AuthManagerInitOptions): Promise<void>;
   signIn(options: SignInOptions): Promise<AuthResult>;
-  signOut(options?: SignOutOptions): Promise<void>;
+  signOut(options?: SignOutOptions): Promise<SignOutResult | void>;
   getCurrentUser(): Promise<AuthUser | null>;
   refreshToken(options?: RefreshTokenOptions): Promise<AuthResult>;
   addAuthStateListener(
@@ -25,20 +25,42 @@ export interface CapacitorAuthManagerPlugin {
   getIdToken(options?: GetIdTokenOptions): Promise<string>;
   setCustomParameters(options: SetCustomParametersOptions): Promise<void>;
   revokeAccess(options?: RevokeAccessOptions): Promise<void>;
+  warmUp(options: WarmUpOptions): Promise<WarmUpResult>;
+  exportDiagnosticLog(): Promise<DiagnosticLogResult>;
+  getMetrics(options?: GetMetricsOptions): Promise<AuthMetrics>;
+  // Android only: change persistence after initialize
+  setPersistence(options: SetPersistenceOptions): Promise<void>;
+  // Android only: fired after each background token refresh
+  addListener(
+    eventName: 'tokenRefresh',
+    listenerFunc: (event: TokenRefreshEvent) => void
+  ): Promise<PluginListenerHandle>;
 }
 
 export interface AuthManagerInitOptions {
   providers: AuthProviderConfig[];
   persistence?: AuthPersistence;
+  // Android only: store each provider's data in its own encrypted file
+  shardStorageByProvider?: boolean;
   autoRefreshToken?: boolean;
   tokenRefreshBuffer?: number;
   enableLogging?: boolean;
   logLevel?: 'debug' | 'info' | 'warn' | 'error';
+  // Android only: format and emit log records on a background thread, dropping them if it falls behind
+  asyncLogging?: boolean;
+  // Android only: also write log output to a size-capped rotating file, see exportDiagnosticLog; needs enableLogging
+  diagnosticLog?: boolean;
+  // Android only: milliseconds to wait for required providers before marking them not ready, and for any
+  // provider started on first use before the call fails with auth/timeout (default 10000)
+  startupTimeout?: number;
 }
 
 export interface AuthProviderConfig {
   provider: AuthProvider;
   options: ProviderOptions;
+  // Android only: 'required' providers are started during initialize and awaited, 'optional' ones start in the
+  // background, and 'lazy' ones (the default) are created on first use
+  startup?: 'required' | 'optional' | 'lazy';
 }
 
 export enum AuthProvider {
@@ -392,6 +414,11 @@ export interface SignOutOptions {
   redirectUrl?: string;
 }
 
+// Android returns this when signing out of all providers at once
+export interface SignOutResult {
+  providers: Record<string, { success: boolean; error?: string }>;
+}
+
 export interface AuthResult {
   user: AuthUser;
   credential: AuthCredential;
@@ -551,6 +578,79 @@ export interface RevokeAccessOptions {
   token?: string;
 }
 
+export interface WarmUpOptions {
+  providers: AuthProvider[];
+}
+
+// Keyed by provider; initMs is -1 when the provider never started
+export type WarmUpResult = Record<
+  string,
+  { ready: boolean; initMs: number; error?: string }
+>;
+
+export interface DiagnosticLogResult {
+  log: string;
+}
+
+export interface SetPersistenceOptions {
+  persistence: AuthPersistence;
+  // On a switch from session to local, write the values held in memory to the encrypted store instead of dropping them
+  spillSession?: boolean;
+}
+
+export interface GetMetricsOptions {
+  // Clear the per-operation histograms after taking the snapshot
+  reset?: boolean;
+}
+
+// leMs is the bucket's upper bound, -1 for the overflow bucket
+export interface OperationMetrics {
+  count: number;
+  errors: number;
+  meanMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p90Ms: number;
+  p99Ms: number;
+  buckets: { leMs: number; count: number }[];
+}
+
+export interface AuthMetrics {
+  // Keyed by provider, then by operation name such as signIn or getIdToken
+  operations: Record<string, Record<string, OperationMetrics>>;
+  // Cumulative since the plugin loaded; not cleared by reset
+  counters: {
+    coalescedRefreshes: number;
+    coalescedIdTokens: number;
+    idTokenCacheHits: number;
+    authStateQueueDepth: number;
+    coalescedAuthStates: number;
+    droppedLogRecords: number;
+  };
+  providers: Record<
+    string,
+    { initMs: number; circuit: 'closed' | 'open' | 'half-open'; timeoutMs: number }
+  >;
+  // Plugin calls run on a fast lane (local reads) or a slow lane (provider and storage work)
+  lanes: Record<'fast' | 'slow', LaneMetrics>;
+}
+
+// Counts and wait times reset with the histograms; queueDepth and active are live
+export interface LaneMetrics {
+  queueDepth: number;
+  active: number;
+  started: number;
+  rejected: number;
+  meanWaitMs: number;
+  maxWaitMs: number;
+}
+
+export interface TokenRefreshEvent {
+  provider: AuthProvider;
+  success: boolean;
+  error?: string;
+}
+
 export enum AuthPersistence {
   LOCAL = 'local',
   SESSION = 'session',
@@ -634,4 +734,7 @@ export enum AuthErrorCode {
   CLIENT_NOT_FOUND = 'auth/client-not-found',
   MISSING_CONFIG = 'auth/missing-config',
   PROVIDER_NOT_INITIALIZED = 'auth/provider-not-initialized',
+  PROVIDER_UNAVAILABLE = 'auth/provider-unavailable',
+  CIRCUIT_OPEN = 'auth/circuit-open',
+  TIMEOUT = 'auth/timeout',
 }
@@ -26,6 +26,12 @@ import type {
   GetIdTokenOptions,
   SetCustomParametersOptions,
   RevokeAccessOptions,
+  DiagnosticLogResult,
+  GetMetricsOptions,
+  SetPersistenceOptions,
+  AuthMetrics,
+  WarmUpOptions,
+  WarmUpResult,
   AuthProvider,
   AuthProviderConfig,
   AuthCredential,
@@ -476,6 +482,29 @@ export class CapacitorAuthManagerWeb
     }
   }
 
+  async warmUp(options: WarmUpOptions): Promise<WarmUpResult> {
+    // Web providers are created during initialize, so there is nothing left to start
+    const result: WarmUpResult = {};
+    for (const providerId of options.providers) {
+      result[providerId] = { ready: this.providers.has(providerId), initMs: 0 };
+    }
+    return result;
+  }
+
+  async exportDiagnosticLog(): Promise<DiagnosticLogResult> {
+    throw this.unimplemented('Diagnostic log export is only available on Android.');
+  }
+
+  async getMetrics(_options?: GetMetricsOptions): Promise<AuthMetrics> {
+    throw this.unimplemented('Metrics are only available on Android.');
+  }
+
+  async setPersistence(_options: SetPersistenceOptions): Promise<void> {
+    throw this.unimplemented(
+      'Changing persistence after initialize is only available on Android.'
+    );
+  }
+
   private validateInitialized(): void {
     if (!this.isInitialized) {
       throw new AuthError(